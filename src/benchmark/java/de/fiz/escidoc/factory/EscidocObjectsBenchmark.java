@@ -0,0 +1,46 @@
+package de.fiz.escidoc.factory;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.escidoc.core.resources.common.MetadataRecords;
+import de.escidoc.core.resources.om.context.Context;
+import de.escidoc.core.resources.oum.OrganizationalUnit;
+
+/**
+ * Measures the factory methods of {@link EscidocObjects} which do not depend on the number of components
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EscidocObjectsBenchmark {
+
+	@Benchmark
+	public Context createContext() {
+		return EscidocObjects.createContext("benchmark-context", "escidoc:ou");
+	}
+
+	@Benchmark
+	public OrganizationalUnit createOrganizationalUnit() {
+		return EscidocObjects.createOrganizationalUnit("benchmark-ou");
+	}
+
+	@Benchmark
+	public MetadataRecords createMetadataRecords() throws ParserConfigurationException {
+		return EscidocObjects.createMetadataRecords("benchmark-title", "item");
+	}
+}
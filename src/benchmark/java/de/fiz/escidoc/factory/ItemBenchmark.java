@@ -0,0 +1,63 @@
+package de.fiz.escidoc.factory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.escidoc.core.client.exceptions.InternalClientException;
+import de.escidoc.core.common.jibx.Marshaller;
+import de.escidoc.core.resources.om.item.Item;
+import de.escidoc.core.resources.om.item.StorageType;
+import de.escidoc.core.resources.om.item.component.Component;
+
+/**
+ * Measures creating and marshalling {@link Item}s depending on the number of their components
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ItemBenchmark {
+	@Param({ "1", "10", "100" })
+	public int componentCount;
+
+	private final Marshaller<Item> marshaller = Marshaller.getMarshaller(Item.class);
+	private List<Component> components;
+	private Item item;
+
+	@Setup
+	public void setup() throws ParserConfigurationException {
+		components = new ArrayList<Component>(componentCount);
+		for (int i = 0; i < componentCount; i++) {
+			components.add(EscidocObjects.createComponentFromURI("component-" + i, "item-" + i + ".content",
+					StorageType.INTERNAL_MANAGED));
+		}
+		item = EscidocObjects.createItem("escidoc:context", "escidoc:contentmodel", components);
+	}
+
+	@Benchmark
+	public Item createItem() throws ParserConfigurationException {
+		return EscidocObjects.createItem("escidoc:context", "escidoc:contentmodel", components);
+	}
+
+	@Benchmark
+	public String marshalItem() throws InternalClientException {
+		return marshaller.marshalDocument(item);
+	}
+}
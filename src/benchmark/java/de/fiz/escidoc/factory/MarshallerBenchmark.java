@@ -0,0 +1,87 @@
+package de.fiz.escidoc.factory;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.escidoc.core.client.exceptions.InternalClientException;
+import de.escidoc.core.common.jibx.Marshaller;
+import de.escidoc.core.resources.cmm.ContentModel;
+import de.escidoc.core.resources.cmm.ContentModelProperties;
+import de.escidoc.core.resources.common.reference.ContextRef;
+import de.escidoc.core.resources.om.contentRelation.ContentRelation;
+import de.escidoc.core.resources.om.contentRelation.ContentRelationProperties;
+import de.escidoc.core.resources.om.context.Context;
+import de.escidoc.core.resources.oum.OrganizationalUnit;
+
+/**
+ * Measures the JiBX {@link Marshaller} for the resource types besides items, which are covered by
+ * {@link ItemBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MarshallerBenchmark {
+	private final Marshaller<Context> contextMarshaller = Marshaller.getMarshaller(Context.class);
+	private final Marshaller<OrganizationalUnit> ouMarshaller = Marshaller.getMarshaller(OrganizationalUnit.class);
+	private final Marshaller<ContentModel> contentModelMarshaller = Marshaller.getMarshaller(ContentModel.class);
+	private final Marshaller<ContentRelation> contentRelationMarshaller = Marshaller
+			.getMarshaller(ContentRelation.class);
+
+	private Context context;
+	private OrganizationalUnit ou;
+	private ContentModel contentModel;
+	private ContentRelation contentRelation;
+
+	@Setup
+	public void setup() throws Exception {
+		context = EscidocObjects.createContext("benchmark-context", "escidoc:ou");
+		ou = EscidocObjects.createOrganizationalUnit("benchmark-ou");
+		ou.setMetadataRecords(EscidocObjects.createMetadataRecords("benchmark-ou", "ou"));
+		final ContentModelProperties cmProperties = new ContentModelProperties();
+		cmProperties.setName("benchmark-contentmodel");
+		contentModel = new ContentModel();
+		contentModel.setProperties(cmProperties);
+		final ContentRelationProperties crProperties = new ContentRelationProperties();
+		crProperties.setDescription("benchmark");
+		contentRelation = new ContentRelation();
+		contentRelation.setProperties(crProperties);
+		contentRelation.setType(URI
+				.create("http://www.escidoc.de/ontologies/mpdl-ontologies/content-relations#isConstituentOf"));
+		contentRelation.setSubject(new ContextRef("escidoc:context"));
+		contentRelation.setObject(new ContextRef("escidoc:context"));
+	}
+
+	@Benchmark
+	public String marshalContext() throws InternalClientException {
+		return contextMarshaller.marshalDocument(context);
+	}
+
+	@Benchmark
+	public String marshalOrganizationalUnit() throws InternalClientException {
+		return ouMarshaller.marshalDocument(ou);
+	}
+
+	@Benchmark
+	public String marshalContentModel() throws InternalClientException {
+		return contentModelMarshaller.marshalDocument(contentModel);
+	}
+
+	@Benchmark
+	public String marshalContentRelation() throws InternalClientException {
+		return contentRelationMarshaller.marshalDocument(contentRelation);
+	}
+}
@@ -0,0 +1,85 @@
+package de.fiz.escidoc.factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.escidoc.core.resources.common.ContentStream;
+import de.escidoc.core.resources.om.item.StorageType;
+import de.escidoc.core.resources.om.item.component.Component;
+
+/**
+ * Measures the random content methods of {@link EscidocObjects} depending on the content size. The
+ * writeToChannel benchmark discards the data and therefore shows the cost of generating the content without the disk
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RandomContentBenchmark {
+	@Param({ "1024", "65536", "1048576" })
+	public long contentSize;
+
+	private final RandomContentWriter writer = new RandomContentWriter();
+	private final WritableByteChannel nullChannel = new WritableByteChannel() {
+		public int write(ByteBuffer src) {
+			final int len = src.remaining();
+			src.position(src.limit());
+			return len;
+		}
+
+		public boolean isOpen() {
+			return true;
+		}
+
+		public void close() {
+		}
+	};
+	private File directory;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		directory = new File(System.getProperty("java.io.tmpdir"), "escidoc-benchmark-" + System.nanoTime());
+		directory.mkdirs();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Benchmark
+	public Component createComponentFromRandomData() throws IOException {
+		return EscidocObjects.createComponentFromRandomData(directory, contentSize, StorageType.INTERNAL_MANAGED);
+	}
+
+	@Benchmark
+	public ContentStream createContentStreamFromRandomData() throws IOException {
+		return EscidocObjects.createContentStreamFromRandomData(directory, contentSize, StorageType.INTERNAL_MANAGED);
+	}
+
+	@Benchmark
+	public long writeToChannel() throws IOException {
+		writer.write(nullChannel, contentSize);
+		return contentSize;
+	}
+}
@@ -1,21 +1,15 @@
 package de.fiz.escidoc.factory;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.joda.time.DateTime;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 import de.escidoc.core.resources.common.ContentStream;
 import de.escidoc.core.resources.common.MetadataRecord;
@@ -45,8 +39,6 @@ import de.escidoc.core.resources.oum.OrganizationalUnitProperties;
  * @author fasseg
  */
 public abstract class EscidocObjects {
-	private static final Random RANDOM = new Random();
-
 	/**
 	 * Create an item from the given information
 	 * 
@@ -97,8 +89,26 @@ public abstract class EscidocObjects {
 	 * @return a new {@link Component} instance
 	 */
 	public static Component createComponentFromURI(final String pid, final String fileName,StorageType storageType) {
+		return createComponentFromURL(pid, "file:" + fileName, fileName, storageType);
+	}
+
+	/**
+	 * Create a component whose content is fetched from a URL
+	 *
+	 * @param pid
+	 *            the PID of the component
+	 * @param url
+	 *            the URL of the content
+	 * @param fileName
+	 *            the file name of the component
+	 * @param storageType
+	 *            the storage type of the content
+	 * @return the component
+	 */
+	public static Component createComponentFromURL(final String pid, final String url, final String fileName,
+			final StorageType storageType) {
 		ComponentContent content = new ComponentContent();
-		content.setXLinkHref("file:" + fileName);
+		content.setXLinkHref(url);
 		content.setStorageType(storageType);
 		Component comp = new Component();
 		ComponentProperties props = new ComponentProperties();
@@ -139,23 +149,8 @@ public abstract class EscidocObjects {
 	 */
 	public static ContentStream createContentStreamFromRandomData(final File targetDirectory, final long size,StorageType storageType)
 			throws IOException {
-		File f = File.createTempFile("testdata-", ".content", targetDirectory);
-		FileOutputStream out = null;
-		try {
-			out = new FileOutputStream(f);
-			long numWritten = 0;
-			byte[] buffer = (size > 1024) ? new byte[1024] : new byte[(int) size];
-			while (numWritten < size) {
-				RANDOM.nextBytes(buffer);
-				int len = (size - numWritten < buffer.length) ? (int) (size - numWritten) : buffer.length;
-				out.write(buffer, 0, len);
-				numWritten += len;
-			}
-			out.flush();
-			return createContentStreamFromURI(f.toURI(),storageType);
-		} finally {
-			out.close();
-		}
+		File f = RandomContentWriter.getInstance().writeFile(targetDirectory, "testdata-", size);
+		return createContentStreamFromURI(f.toURI(),storageType);
 	}
 
 	/**
@@ -170,23 +165,26 @@ public abstract class EscidocObjects {
 	 */
 	public static Component createComponentFromRandomData(final File targetDirectory, final long size,StorageType storageType)
 			throws IOException {
-		File f = File.createTempFile("item-", ".content", targetDirectory);
-		FileOutputStream out = null;
-		try {
-			out = new FileOutputStream(f);
-			long numWritten = 0;
-			byte[] buffer = (size > 1024) ? new byte[1024] : new byte[(int) size];
-			while (numWritten < size) {
-				RANDOM.nextBytes(buffer);
-				int len = (size - numWritten < buffer.length) ? (int) (size - numWritten) : buffer.length;
-				out.write(buffer, 0, len);
-				numWritten += len;
-			}
-			out.flush();
-			return createComponentFromURI("why?", f.getName(),storageType);
-		} finally {
-			out.close();
-		}
+		return createComponentFromRandomData(targetDirectory, size, storageType, RandomContentWriter.getInstance());
+	}
+
+	/**
+	 * Create a {@link Component} from random data and the data into content file in a given directory using the
+	 * supplied {@link RandomContentWriter}
+	 * 
+	 * @param targetDirectory
+	 *            the directory to write the content file to
+	 * @param size
+	 *            the size the random data should have
+	 * @param writer
+	 *            the {@link RandomContentWriter} used for generating the data
+	 * @return a new {@link Component} instance
+	 * @throws IOException
+	 */
+	public static Component createComponentFromRandomData(final File targetDirectory, final long size,
+			StorageType storageType, final RandomContentWriter writer) throws IOException {
+		File f = writer.writeFile(targetDirectory, "item-", size);
+		return createComponentFromURI("why?", f.getName(),storageType);
 	}
 
 	/**
@@ -276,24 +274,59 @@ public abstract class EscidocObjects {
 		return ou;
 	}
 
+	/**
+	 * Create the default {@link MetadataRecords} containing an "escidoc" record with a dublin core title. The DOM
+	 * builders and the structure of the record are cached per thread, so this method is cheap enough to be called for
+	 * every generated object
+	 * 
+	 * @param title
+	 *            the title of the record
+	 * @param nameSpace
+	 *            the name of the record's root element
+	 * @return a new {@link MetadataRecords} instance
+	 * @throws ParserConfigurationException
+	 */
 	public static MetadataRecords createMetadataRecords(String title, String nameSpace)
 			throws ParserConfigurationException {
+		return createMetadataRecords(title, nameSpace, new DateTime());
+	}
+
+	/**
+	 * Create the default {@link MetadataRecords} with a given last modification date
+	 * 
+	 * @param title
+	 *            the title of the record
+	 * @param nameSpace
+	 *            the name of the record's root element
+	 * @param lastModificationDate
+	 *            the last modification date of the record
+	 * @return a new {@link MetadataRecords} instance
+	 * @throws ParserConfigurationException
+	 */
+	public static MetadataRecords createMetadataRecords(String title, String nameSpace, DateTime lastModificationDate)
+			throws ParserConfigurationException {
 		MetadataRecords records = new MetadataRecords();
-		MetadataRecord escidoc = new MetadataRecord("escidoc");
-		escidoc.setLastModificationDate(new DateTime());
-		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-		factory.setNamespaceAware(true);
-		factory.setCoalescing(true);
-		factory.setValidating(true);
-		final DocumentBuilder builder = factory.newDocumentBuilder();
-		final Document doc = builder.newDocument();
-		final Element mdRecordContent = doc.createElementNS(null, nameSpace);
-		final Element titleElmt = doc.createElementNS("http://purl.org/dc/elements/1.1/", "title");
-		titleElmt.setPrefix("dc");
-		titleElmt.setTextContent(title);
-		mdRecordContent.appendChild(titleElmt);
-		escidoc.setContent(mdRecordContent);
-		records.add(escidoc);
+		records.add(createMetadataRecord(title, nameSpace, lastModificationDate));
 		return records;
 	}
+
+	/**
+	 * Create the default "escidoc" {@link MetadataRecord} containing a dublin core title
+	 * 
+	 * @param title
+	 *            the title of the record
+	 * @param nameSpace
+	 *            the name of the record's root element
+	 * @param lastModificationDate
+	 *            the last modification date of the record
+	 * @return a new {@link MetadataRecord} instance
+	 * @throws ParserConfigurationException
+	 */
+	public static MetadataRecord createMetadataRecord(String title, String nameSpace, DateTime lastModificationDate)
+			throws ParserConfigurationException {
+		MetadataRecord escidoc = new MetadataRecord("escidoc");
+		escidoc.setLastModificationDate(lastModificationDate);
+		escidoc.setContent(MetadataRecordTemplates.getInstance().createContent(title, nameSpace));
+		return escidoc;
+	}
 }
@@ -0,0 +1,157 @@
+package de.fiz.escidoc.factory;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * A small and fast pseudo random number generator based on the SplitMix64 algorithm. It is intended for generating
+ * large amounts of test data and is neither thread safe nor suitable for cryptographic use. Unlike
+ * {@link java.util.Random} it has no synchronization overhead, so every thread should use its own instance
+ */
+public final class FastRandom {
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long state;
+
+	/**
+	 * Create a new instance seeded from the system clock
+	 */
+	public FastRandom() {
+		this(System.nanoTime() ^ Thread.currentThread().getId() * GOLDEN_GAMMA);
+	}
+
+	/**
+	 * Create a new instance with a fixed seed. Instances with the same seed produce the same sequence of values
+	 *
+	 * @param seed
+	 *            the seed
+	 */
+	public FastRandom(final long seed) {
+		this.state = seed;
+	}
+
+	/**
+	 * Reset the generator to a new seed
+	 *
+	 * @param seed
+	 *            the seed
+	 */
+	public void setSeed(final long seed) {
+		this.state = seed;
+	}
+
+	/**
+	 * @return the state of the generator, a generator seeded with it continues with the same sequence of values
+	 */
+	public long getState() {
+		return state;
+	}
+
+	/**
+	 * Advance the generator in constant time, as if the given number of long values had been drawn
+	 *
+	 * @param numValues
+	 *            the number of values to skip
+	 */
+	public void skip(final long numValues) {
+		this.state += numValues * GOLDEN_GAMMA;
+	}
+
+	/**
+	 * @return the next pseudo random long value
+	 */
+	public long nextLong() {
+		return mix(state += GOLDEN_GAMMA);
+	}
+
+	/**
+	 * @param bound
+	 *            the exclusive upper bound, must be positive
+	 * @return the next pseudo random int value between 0 and bound
+	 */
+	public int nextInt(final int bound) {
+		return (int) (((nextLong() >>> 33) * bound) >>> 31);
+	}
+
+	/**
+	 * @return the next pseudo random double value between 0 and 1
+	 */
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * @return the next pseudo random value of the standard normal distribution
+	 */
+	public double nextGaussian() {
+		// the polar method, the second value is discarded so that the sequence only depends on the state
+		double x;
+		double y;
+		double s;
+		do {
+			x = 2d * nextDouble() - 1d;
+			y = 2d * nextDouble() - 1d;
+			s = x * x + y * y;
+		} while (s >= 1d || s == 0d);
+		return x * Math.sqrt(-2d * Math.log(s) / s);
+	}
+
+	/**
+	 * @return a new pseudo random version 4 {@link UUID}
+	 */
+	public UUID nextUUID() {
+		final long msb = (nextLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+		final long lsb = (nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+		return new UUID(msb, lsb);
+	}
+
+	/**
+	 * Fill the remaining bytes of a {@link ByteBuffer} with pseudo random data
+	 *
+	 * @param buffer
+	 *            the buffer to fill
+	 */
+	public void nextBytes(final ByteBuffer buffer) {
+		long s = state;
+		while (buffer.remaining() >= 8) {
+			buffer.putLong(mix(s += GOLDEN_GAMMA));
+		}
+		if (buffer.hasRemaining()) {
+			long last = mix(s += GOLDEN_GAMMA);
+			while (buffer.hasRemaining()) {
+				buffer.put((byte) last);
+				last >>>= 8;
+			}
+		}
+		state = s;
+	}
+
+	/**
+	 * Derive the seed of a single object from a run's seed. Different types and indices yield independent seeds, so
+	 * every object can be generated reproducibly regardless of the order in which the objects are generated
+	 *
+	 * @param seed
+	 *            the seed of the run
+	 * @param type
+	 *            the type of the object
+	 * @param index
+	 *            the index of the object
+	 * @return the seed of the object
+	 */
+	public static long derive(final long seed, final String type, final long index) {
+		return mix(mix(seed + type.hashCode() * GOLDEN_GAMMA) + (index + 1) * GOLDEN_GAMMA);
+	}
+
+	/**
+	 * The SplitMix64 finalizer, which maps a long value to a well distributed long value
+	 *
+	 * @param z
+	 *            the value to mix
+	 * @return the mixed value
+	 */
+	public static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+}
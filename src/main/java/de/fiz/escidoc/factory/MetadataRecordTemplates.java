@@ -0,0 +1,79 @@
+package de.fiz.escidoc.factory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Per-thread cache of the DOM structures used for the content of the default metadata records. Every thread keeps
+ * its own {@link DocumentBuilder} and one pre-built template element per root element name. A metadata record's
+ * content is created by importing a deep copy of the template into a fresh {@link Document} and setting the title,
+ * which yields the same DOM as building it from scratch. Since every returned element has a document of its own it
+ * can be handed over to and marshalled by other threads
+ */
+final class MetadataRecordTemplates {
+	static final String DC_NAMESPACE = "http://purl.org/dc/elements/1.1/";
+
+	private static final ThreadLocal<MetadataRecordTemplates> INSTANCES = new ThreadLocal<MetadataRecordTemplates>();
+
+	private final DocumentBuilder builder;
+	private final Map<String, Element> templates = new HashMap<String, Element>();
+
+	private MetadataRecordTemplates() throws ParserConfigurationException {
+		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		factory.setCoalescing(true);
+		factory.setValidating(true);
+		this.builder = factory.newDocumentBuilder();
+	}
+
+	/**
+	 * @return the calling thread's template cache
+	 * @throws ParserConfigurationException
+	 *             if no {@link DocumentBuilder} could be created
+	 */
+	static MetadataRecordTemplates getInstance() throws ParserConfigurationException {
+		MetadataRecordTemplates templates = INSTANCES.get();
+		if (templates == null) {
+			templates = new MetadataRecordTemplates();
+			INSTANCES.set(templates);
+		}
+		return templates;
+	}
+
+	/**
+	 * Create the content of a metadata record containing a dublin core title
+	 *
+	 * @param title
+	 *            the text of the dc:title element
+	 * @param nameSpace
+	 *            the name of the record's root element
+	 * @return a new {@link Element} owned by a new {@link Document}
+	 */
+	Element createContent(final String title, final String nameSpace) {
+		Element template = templates.get(nameSpace);
+		if (template == null) {
+			template = createTemplate(nameSpace);
+			templates.put(nameSpace, template);
+		}
+		final Document doc = builder.newDocument();
+		final Element mdRecordContent = (Element) doc.importNode(template, true);
+		mdRecordContent.getFirstChild().setTextContent(title);
+		return mdRecordContent;
+	}
+
+	private Element createTemplate(final String nameSpace) {
+		final Document doc = builder.newDocument();
+		final Element mdRecordContent = doc.createElementNS(null, nameSpace);
+		final Element titleElmt = doc.createElementNS(DC_NAMESPACE, "title");
+		titleElmt.setPrefix("dc");
+		mdRecordContent.appendChild(titleElmt);
+		return mdRecordContent;
+	}
+}
@@ -0,0 +1,251 @@
+package de.fiz.escidoc.factory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Writes random content files. Each instance owns a {@link FastRandom} and a large direct buffer which is refilled
+ * and written to a channel until the requested size has been reached, so content of arbitrary size (including sizes
+ * above {@link Integer#MAX_VALUE}) is written with a constant memory footprint. Instances are not thread safe, use
+ * {@link #getInstance()} to obtain the calling thread's instance or create one per worker.
+ * <p>
+ * Files are written according to the writer's {@link FileMode}: streamed through the buffer or preallocated as sparse
+ * files of which only a block at the start of every stride is filled, which takes nearly no time and disk space
+ */
+public final class RandomContentWriter {
+	static final int BUFFER_SIZE = 1024 * 1024;
+	private static final int CHECKSUM_BUFFER_SIZE = 64 * 1024;
+	private static final long DEFAULT_SPARSE_BLOCK_SIZE = 4096;
+	private static final long DEFAULT_SPARSE_STRIDE = 64L * BUFFER_SIZE;
+
+	/**
+	 * The ways of writing a file
+	 */
+	public enum FileMode {
+		/** the data is written through the file's channel */
+		STREAM,
+		/** the file is preallocated as a sparse file and only a block at the start of every stride is filled */
+		SPARSE
+	}
+
+	private static final ThreadLocal<RandomContentWriter> INSTANCES = new ThreadLocal<RandomContentWriter>() {
+		@Override
+		protected RandomContentWriter initialValue() {
+			return new RandomContentWriter();
+		}
+	};
+
+	private final FastRandom random;
+	private final ByteBuffer buffer;
+	private ByteBuffer checksumBuffer;
+	private FileMode fileMode = FileMode.STREAM;
+	private long sparseBlockSize = DEFAULT_SPARSE_BLOCK_SIZE;
+	private long sparseStride = DEFAULT_SPARSE_STRIDE;
+
+	/**
+	 * Create a new instance with its own randomly seeded {@link FastRandom}
+	 */
+	public RandomContentWriter() {
+		this(new FastRandom());
+	}
+
+	/**
+	 * Create a new instance using the given {@link FastRandom}
+	 *
+	 * @param random
+	 *            the source of the random data
+	 */
+	public RandomContentWriter(final FastRandom random) {
+		this.random = random;
+		// a fixed byte order, so seeded content is the same on every platform
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * @return the {@link RandomContentWriter} of the calling thread
+	 */
+	public static RandomContentWriter getInstance() {
+		return INSTANCES.get();
+	}
+
+	/**
+	 * @return the {@link FastRandom} used by this writer
+	 */
+	public FastRandom getRandom() {
+		return random;
+	}
+
+	/**
+	 * @param fileMode
+	 *            the way of writing files
+	 */
+	public void setFileMode(final FileMode fileMode) {
+		this.fileMode = fileMode;
+	}
+
+	/**
+	 * Set the pattern of the data in sparse files
+	 *
+	 * @param blockSize
+	 *            the number of random bytes at the start of every stride, at most 1 MB. With 0 the files are holes
+	 *            only
+	 * @param stride
+	 *            the distance between the blocks
+	 */
+	public void setSparsePattern(final long blockSize, final long stride) {
+		if (blockSize < 0 || blockSize > BUFFER_SIZE || stride < 1 || blockSize > stride) {
+			throw new IllegalArgumentException("Invalid sparse pattern " + blockSize + "/" + stride);
+		}
+		this.sparseBlockSize = blockSize;
+		this.sparseStride = stride;
+	}
+
+	/**
+	 * Create a new temporary file in a directory and fill it with random data
+	 *
+	 * @param targetDirectory
+	 *            the directory to create the file in
+	 * @param prefix
+	 *            the prefix of the file name
+	 * @param size
+	 *            the number of bytes to write
+	 * @return the new file
+	 * @throws IOException
+	 */
+	public File writeFile(final File targetDirectory, final String prefix, final long size) throws IOException {
+		final File f = File.createTempFile(prefix, ".content", targetDirectory);
+		write(f, size);
+		return f;
+	}
+
+	/**
+	 * Fill a file with random data according to the writer's {@link FileMode}, existing content will be overwritten
+	 *
+	 * @param file
+	 *            the file to write to
+	 * @param size
+	 *            the number of bytes to write
+	 * @throws IOException
+	 */
+	public void write(final File file, final long size) throws IOException {
+		if (size < 0) {
+			throw new IllegalArgumentException("size must not be negative: " + size);
+		}
+		if (fileMode == FileMode.SPARSE) {
+			writeSparse(file, size);
+			return;
+		}
+		FileOutputStream out = null;
+		try {
+			out = new FileOutputStream(file);
+			write(out.getChannel(), size);
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	private void writeSparse(final File file, final long size) throws IOException {
+		RandomAccessFile out = null;
+		try {
+			out = new RandomAccessFile(file, "rw");
+			// the blocks of an existing file are released, the file system allocates only the blocks written below
+			out.setLength(0);
+			out.setLength(size);
+			final FileChannel channel = out.getChannel();
+			for (long position = 0; sparseBlockSize > 0 && position < size; position += sparseStride) {
+				buffer.clear();
+				buffer.limit((int) Math.min(sparseBlockSize, size - position));
+				random.nextBytes(buffer);
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer, position + buffer.position());
+				}
+			}
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	/**
+	 * Write random data to a channel. The channel is not closed
+	 *
+	 * @param channel
+	 *            the channel to write to
+	 * @param size
+	 *            the number of bytes to write
+	 * @throws IOException
+	 */
+	public void write(final WritableByteChannel channel, final long size) throws IOException {
+		if (size < 0) {
+			throw new IllegalArgumentException("size must not be negative: " + size);
+		}
+		long remaining = size;
+		while (remaining > 0) {
+			buffer.clear();
+			if (remaining < buffer.capacity()) {
+				buffer.limit((int) remaining);
+			}
+			random.nextBytes(buffer);
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				remaining -= channel.write(buffer);
+			}
+		}
+	}
+
+	/**
+	 * Write reproducible random data to a channel. Writing the same size with the same seed always yields the same
+	 * data. The channel is not closed
+	 *
+	 * @param channel
+	 *            the channel to write to
+	 * @param size
+	 *            the number of bytes to write
+	 * @param seed
+	 *            the seed of the random data
+	 * @throws IOException
+	 */
+	public void write(final WritableByteChannel channel, final long size, final long seed) throws IOException {
+		random.setSeed(seed);
+		write(channel, size);
+	}
+
+	/**
+	 * Calculate the CRC-32 checksum of the data {@link #write(WritableByteChannel, long, long)} would write for the
+	 * given size and seed, without writing anything
+	 *
+	 * @param size
+	 *            the number of bytes
+	 * @param seed
+	 *            the seed of the random data
+	 * @return the CRC-32 checksum of the data
+	 */
+	public long checksum(final long size, final long seed) {
+		if (checksumBuffer == null) {
+			// a heap buffer, since the checksum is calculated from the backing array
+			checksumBuffer = ByteBuffer.allocate(CHECKSUM_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		final CRC32 crc = new CRC32();
+		random.setSeed(seed);
+		long remaining = size;
+		while (remaining > 0) {
+			checksumBuffer.clear();
+			if (remaining < checksumBuffer.capacity()) {
+				checksumBuffer.limit((int) remaining);
+			}
+			random.nextBytes(checksumBuffer);
+			crc.update(checksumBuffer.array(), 0, checksumBuffer.position());
+			remaining -= checksumBuffer.position();
+		}
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,281 @@
+package de.fiz.escidoc.factory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * A distribution of non-negative long values like content sizes or numbers of components. Distributions are created
+ * from a specification by {@link #parse(String)}:
+ * <ul>
+ * <li><code>&lt;n&gt;</code> or <code>fixed:&lt;n&gt;</code>: always n</li>
+ * <li><code>uniform:&lt;min&gt;,&lt;max&gt;</code>: uniformly distributed between min and max, both inclusive</li>
+ * <li><code>lognormal:&lt;median&gt;,&lt;sigma&gt;[,&lt;max&gt;]</code>: log-normally distributed with the given
+ * median and shape, optionally capped at max. A sigma of 1 to 2 yields the long tail typical for file sizes</li>
+ * <li><code>zipf:&lt;n&gt;,&lt;s&gt;</code>: the ranks 1 to n, the probability of rank k is proportional to
+ * 1/k<sup>s</sup>. An exponent of 0 yields all ranks with equal probability, an exponent of 1 the classic Zipf
+ * popularity</li>
+ * <li><code>histogram:&lt;path&gt;</code>: sampled from a histogram file. Every line contains either a value and its
+ * weight or the lower bound, the upper bound and the weight of a range from which values are drawn uniformly. Empty
+ * lines and lines starting with # are ignored</li>
+ * </ul>
+ * Values may be given with a binary unit like <code>512k</code>, <code>10MB</code> or <code>1.5G</code>, see
+ * {@link #parseValue(String)}. Samples are drawn from a {@link FastRandom} passed by the caller, so seeded generators
+ * sample reproducibly
+ */
+public abstract class SizeDistribution {
+
+	/**
+	 * Draw a value
+	 *
+	 * @param random
+	 *            the source of randomness
+	 * @return the value
+	 */
+	public abstract long sample(FastRandom random);
+
+	/**
+	 * Create a distribution from its specification
+	 *
+	 * @param spec
+	 *            the specification
+	 * @return the distribution
+	 * @throws IOException
+	 *             if the histogram file could not be read
+	 * @throws IllegalArgumentException
+	 *             if the specification is invalid
+	 */
+	public static SizeDistribution parse(final String spec) throws IOException {
+		final String trimmed = spec.trim();
+		final int colon = trimmed.indexOf(':');
+		final String kind = colon < 0 ? "fixed" : trimmed.substring(0, colon).trim();
+		final String args = colon < 0 ? trimmed : trimmed.substring(colon + 1).trim();
+		if (kind.equals("fixed")) {
+			return fixed(parseValue(args));
+		} else if (kind.equals("uniform")) {
+			final String[] bounds = split(args, 2, 2, spec);
+			return uniform(parseValue(bounds[0]), parseValue(bounds[1]));
+		} else if (kind.equals("lognormal")) {
+			final String[] params = split(args, 2, 3, spec);
+			return logNormal(parseValue(params[0]), Double.parseDouble(params[1]), params.length == 3 ? parseValue(
+					params[2]) : Long.MAX_VALUE);
+		} else if (kind.equals("zipf")) {
+			final String[] params = split(args, 2, 2, spec);
+			return zipf(parseValue(params[0]), Double.parseDouble(params[1]));
+		} else if (kind.equals("histogram")) {
+			return histogram(new File(args));
+		}
+		throw new IllegalArgumentException("Unknown distribution " + spec);
+	}
+
+	/**
+	 * @return a distribution always yielding the given value
+	 */
+	public static SizeDistribution fixed(final long value) {
+		checkNotNegative(value);
+		return new SizeDistribution() {
+			@Override
+			public long sample(final FastRandom random) {
+				return value;
+			}
+		};
+	}
+
+	/**
+	 * @return a distribution yielding values between min and max, both inclusive, with equal probability
+	 */
+	public static SizeDistribution uniform(final long min, final long max) {
+		checkNotNegative(min);
+		if (max < min) {
+			throw new IllegalArgumentException("max must not be less than min: " + min + "," + max);
+		}
+		return new SizeDistribution() {
+			@Override
+			public long sample(final FastRandom random) {
+				return Math.min(max, min + (long) (random.nextDouble() * (max - min + 1d)));
+			}
+		};
+	}
+
+	/**
+	 * @return a log-normal distribution with the given median and shape, capped at max
+	 */
+	public static SizeDistribution logNormal(final long median, final double sigma, final long max) {
+		checkNotNegative(median);
+		if (sigma < 0) {
+			throw new IllegalArgumentException("sigma must not be negative: " + sigma);
+		}
+		final double mu = Math.log(Math.max(1, median));
+		return new SizeDistribution() {
+			@Override
+			public long sample(final FastRandom random) {
+				return Math.min(max, Math.round(Math.exp(mu + sigma * random.nextGaussian())));
+			}
+		};
+	}
+
+	/**
+	 * @return a Zipf distribution of the ranks 1 to n with the given exponent. The cumulative weights of the ranks are
+	 *         held in a table of n doubles
+	 */
+	public static SizeDistribution zipf(final long n, final double exponent) {
+		if (n < 1 || n > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Invalid number of ranks " + n);
+		}
+		if (exponent < 0) {
+			throw new IllegalArgumentException("The exponent must not be negative: " + exponent);
+		}
+		final double[] cumulative = new double[(int) n];
+		double total = 0;
+		for (int k = 0; k < n; k++) {
+			total += Math.pow(k + 1, -exponent);
+			cumulative[k] = total;
+		}
+		final double sum = total;
+		return new SizeDistribution() {
+			@Override
+			public long sample(final FastRandom random) {
+				return indexOf(cumulative, random.nextDouble() * sum) + 1;
+			}
+		};
+	}
+
+	/**
+	 * @return a distribution sampled from a histogram file
+	 * @throws IOException
+	 *             if the file could not be read
+	 */
+	public static SizeDistribution histogram(final File file) throws IOException {
+		final List<long[]> ranges = new ArrayList<long[]>();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#")) {
+					continue;
+				}
+				final String[] columns = line.split("[\\s,;]+");
+				if (columns.length == 2) {
+					final long value = parseValue(columns[0]);
+					ranges.add(new long[] { value, value, Long.parseLong(columns[1]) });
+				} else if (columns.length == 3) {
+					ranges.add(new long[] { parseValue(columns[0]), parseValue(columns[1]), Long.parseLong(columns[2]) });
+				} else {
+					throw new IllegalArgumentException("Invalid histogram line in " + file + ": " + line);
+				}
+			}
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+		return histogram(ranges);
+	}
+
+	private static SizeDistribution histogram(final List<long[]> ranges) {
+		final int size = ranges.size();
+		final long[] lower = new long[size];
+		final long[] upper = new long[size];
+		final double[] cumulative = new double[size];
+		double total = 0;
+		for (int i = 0; i < size; i++) {
+			final long[] range = ranges.get(i);
+			checkNotNegative(range[0]);
+			checkNotNegative(range[2]);
+			if (range[1] < range[0]) {
+				throw new IllegalArgumentException("Invalid histogram range " + range[0] + "-" + range[1]);
+			}
+			lower[i] = range[0];
+			upper[i] = range[1];
+			total += range[2];
+			cumulative[i] = total;
+		}
+		if (total == 0) {
+			throw new IllegalArgumentException("The histogram is empty");
+		}
+		final double sum = total;
+		return new SizeDistribution() {
+			@Override
+			public long sample(final FastRandom random) {
+				final int low = indexOf(cumulative, random.nextDouble() * sum);
+				return Math.min(upper[low], lower[low] + (long) (random.nextDouble() * (upper[low] - lower[low] + 1d)));
+			}
+		};
+	}
+
+	/**
+	 * @return the index of the first bucket whose cumulative weight exceeds the point
+	 */
+	private static int indexOf(final double[] cumulative, final double point) {
+		int low = 0;
+		int high = cumulative.length - 1;
+		while (low < high) {
+			final int mid = (low + high) >>> 1;
+			if (cumulative[mid] > point) {
+				high = mid;
+			} else {
+				low = mid + 1;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Parse a non-negative value, optionally followed by one of the units k, M, G or T, which stand for powers of 1024
+	 * and may be followed by B. Values with a unit may have a fraction
+	 *
+	 * @throws IllegalArgumentException
+	 *             if the value is invalid
+	 */
+	public static long parseValue(final String value) {
+		final String trimmed = value.trim();
+		int end = trimmed.length();
+		while (end > 0 && Character.isLetter(trimmed.charAt(end - 1))) {
+			end--;
+		}
+		final String number = trimmed.substring(0, end).trim();
+		final String unit = trimmed.substring(end).toUpperCase(Locale.ENGLISH);
+		final int shift;
+		if (unit.length() == 0 || unit.equals("B")) {
+			shift = 0;
+		} else if (unit.length() <= 3 && (unit.length() == 1 || unit.substring(1).equals("B")
+				|| unit.substring(1).equals("IB")) && "KMGT".indexOf(unit.charAt(0)) >= 0) {
+			shift = 10 * ("KMGT".indexOf(unit.charAt(0)) + 1);
+		} else {
+			throw new IllegalArgumentException("Unknown unit " + unit + " of " + value);
+		}
+		final long parsed;
+		if (shift == 0) {
+			parsed = Long.parseLong(number);
+		} else {
+			final double scaled = Double.parseDouble(number) * (1L << shift);
+			if (scaled >= Long.MAX_VALUE) {
+				throw new IllegalArgumentException("Value too large: " + value);
+			}
+			parsed = Math.round(scaled);
+		}
+		checkNotNegative(parsed);
+		return parsed;
+	}
+
+	private static String[] split(final String args, final int min, final int max, final String spec) {
+		final String[] values = args.split(",");
+		if (values.length < min || values.length > max) {
+			throw new IllegalArgumentException("Invalid distribution " + spec);
+		}
+		return values;
+	}
+
+	private static void checkNotNegative(final long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative value " + value);
+		}
+	}
+}
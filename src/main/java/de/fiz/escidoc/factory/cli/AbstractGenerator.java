@@ -0,0 +1,1130 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import de.fiz.escidoc.factory.FastRandom;
+import de.fiz.escidoc.factory.RandomContentWriter;
+import de.fiz.escidoc.factory.cli.GeneratorMetrics.Stage;
+
+/**
+ * Base class of the generators creating a number of objects of one type. The objects are created and written by a
+ * pool of {@link Worker}s, their entries are appended to the result file in the order of the objects' indices
+ */
+abstract class AbstractGenerator<T> extends Questionary implements Generator, GeneratorPool.Member {
+	private static final int MANIFEST_FLUSH_INTERVAL = 1000;
+	private static final int MAX_PENDING_OBJECTS = 64;
+	private static final int QUEUE_CAPACITY_PER_THREAD = 16;
+
+	/**
+	 * Returned by {@link #getNumObjects()} if the objects are streamed and their number is not known in advance
+	 */
+	static final int UNKNOWN_NUM_OBJECTS = -1;
+	private static final DateTime SEEDED_MODIFICATION_DATE = new DateTime(0L, DateTimeZone.UTC);
+	private static final int DEFAULT_TEMPLATE_VERIFY_INTERVAL = 1000;
+	private static final long MARKER_BITS = 0x7e3a1d5c9b2f4e68L;
+
+	protected final Properties properties;
+	private final Class<T> type;
+	private final String prefix;
+
+	private final Object resultLock = new Object();
+	private ManifestWriter manifest;
+	private ByteArrayOutputStream archiveManifest;
+	private CheckpointJournal journal;
+	private Long seed;
+	private Shard shard;
+	private GeneratorMetrics metrics;
+	private ExecutorService stagingExecutor;
+	private PipelineStage<Job> marshalStage;
+	private PipelineStage<Job> compressStage;
+	private PipelineStage<Job> writeStage;
+	private Compression compression;
+	private FileChannel gzipStream;
+	private String gzipStreamName;
+	private final AtomicLong gzipStreamPosition = new AtomicLong();
+	private BlockingQueue<ByteBuffer> freeBuffers;
+	private AtomicInteger numDone;
+	private boolean streaming;
+	private ConcurrentMap<String, XmlTemplate> templates;
+	private RandomContentWriter.FileMode contentMode;
+	private long[] sparsePattern;
+	private int templateVerifyInterval;
+	private DateTime runDate;
+	private GeneratorSink generatorSink;
+	private OutputTarget sinkTarget;
+	private GeneratorPool pool;
+
+	/**
+	 * @param properties
+	 *            the generator settings
+	 * @param type
+	 *            the type of the generated objects
+	 * @param prefix
+	 *            the prefix of the generated file names
+	 */
+	AbstractGenerator(final Properties properties, final Class<T> type, final String prefix) {
+		super(new BufferedReader(new InputStreamReader(System.in)), System.out);
+		this.properties = properties;
+		this.type = type;
+		this.prefix = prefix;
+	}
+
+	/**
+	 * @return the number of objects to generate or {@link #UNKNOWN_NUM_OBJECTS} if the objects are created until
+	 *         {@link #claimIndex(AtomicInteger, Worker)} reports the end
+	 * @throws Exception
+	 */
+	abstract int getNumObjects() throws Exception;
+
+	/**
+	 * @return the testplan CSV file listing the generated files
+	 */
+	abstract File getResultFile();
+
+	/**
+	 * Create the object with the given index. Implementations may write additional files like content using the
+	 * worker's {@link Worker#writeContent(String, long)}. In template mode an object may be created twice, so all
+	 * state of the object has to be taken from its index, the worker's random and its input
+	 *
+	 * @param index
+	 *            the object's index
+	 * @param worker
+	 *            the calling worker
+	 * @return the new object
+	 * @throws Exception
+	 */
+	abstract T createObject(int index, Worker worker) throws Exception;
+
+	/**
+	 * Hook for preparing a run, called before {@link #getNumObjects()}
+	 *
+	 * @throws Exception
+	 */
+	void prepare() throws Exception {
+	}
+
+	/**
+	 * Hook for releasing the resources of a run, called after the last object has been written or the run failed
+	 */
+	void cleanup() {
+	}
+
+	/**
+	 * Claim the index of the next object for a worker. This is only called if the number of objects is unknown,
+	 * generators streaming their inputs override this to assign the next input to the worker by
+	 * {@link Worker#setInput(Object)}
+	 *
+	 * @param nextIndex
+	 *            the counter of the indices
+	 * @param worker
+	 *            the claiming worker
+	 * @return the index of the next object or -1 if all objects have been claimed
+	 * @throws Exception
+	 */
+	int claimIndex(final AtomicInteger nextIndex, final Worker worker) throws Exception {
+		return -1;
+	}
+
+	/**
+	 * @return true if the objects have to be numbered in the same order by every run, which is the case if
+	 *         checkpoints, a seed or shards are used
+	 */
+	boolean requiresStableIndices() {
+		return Boolean.parseBoolean(properties.getProperty(CommandlineInterface.PROPERTY_CHECKPOINT))
+				|| CommandlineInterface.getSeed(properties) != null || Shard.fromProperties(properties).isSplit();
+	}
+
+	/**
+	 * Get the target for this generator's files
+	 *
+	 * @param target
+	 *            the target of the run
+	 * @return the target to write to
+	 */
+	OutputTarget getTarget(final OutputTarget target) {
+		return target;
+	}
+
+	public void setPool(final GeneratorPool pool) {
+		this.pool = pool;
+	}
+
+	public void generate(final OutputTarget outputTarget, final GeneratorSink sink) throws Exception {
+		final OutputTarget target = getTarget(outputTarget);
+		generatorSink = sink;
+		sinkTarget = target;
+		try {
+			generate(target, getResultFile());
+		} finally {
+			generatorSink = null;
+			sinkTarget = null;
+			cleanup();
+		}
+	}
+
+	private void generate(final OutputTarget target, final File unsplitResultFile) throws Exception {
+		prepare();
+		final int numObjects = getNumObjects();
+		streaming = numObjects == UNKNOWN_NUM_OBJECTS;
+		final int numThreads = CommandlineInterface.getNumThreads(properties);
+		final int numMarshalThreads = CommandlineInterface.getNumStageThreads(properties,
+				CommandlineInterface.PROPERTY_NUM_MARSHAL_THREADS);
+		final int numWriteThreads = CommandlineInterface.getNumStageThreads(properties,
+				CommandlineInterface.PROPERTY_NUM_WRITE_THREADS);
+		compression = Compression.fromProperties(properties);
+		final int compressionLevel = Compression.getLevel(properties);
+		final int numCompressThreads = compression == Compression.NONE ? 0 : properties.getProperty(
+				CommandlineInterface.PROPERTY_NUM_COMPRESS_THREADS) == null ? Runtime.getRuntime().availableProcessors()
+				: Math.max(1, CommandlineInterface.getNumStageThreads(properties,
+						CommandlineInterface.PROPERTY_NUM_COMPRESS_THREADS));
+		final boolean checkpoint = Boolean.parseBoolean(properties.getProperty(CommandlineInterface.PROPERTY_CHECKPOINT));
+		if (compression == Compression.STREAM && (checkpoint || target.isArchive())) {
+			throw new IOException("A gzip stream can not be resumed from checkpoints or written into an archive");
+		}
+		seed = CommandlineInterface.getSeed(properties);
+		contentMode = CommandlineInterface.getContentMode(properties);
+		sparsePattern = CommandlineInterface.getSparsePattern(properties);
+		shard = Shard.fromProperties(properties);
+		if (streaming && requiresStableIndices()) {
+			throw new IllegalStateException("Streamed objects do not support checkpoints, seeds or shards");
+		}
+		templates = Boolean.parseBoolean(properties.getProperty(CommandlineInterface.PROPERTY_XML_TEMPLATE))
+				? new ConcurrentHashMap<String, XmlTemplate>() : null;
+		templateVerifyInterval = Integer.parseInt(properties.getProperty(
+				CommandlineInterface.PROPERTY_XML_TEMPLATE_VERIFY, String.valueOf(DEFAULT_TEMPLATE_VERIFY_INTERVAL)));
+		runDate = new DateTime();
+		final File resultFile = shard.getResultFile(unsplitResultFile);
+		final int first = streaming ? 0 : shard.getFirst(numObjects);
+		final int end = streaming ? Integer.MAX_VALUE : shard.getEnd(numObjects);
+		if (shard.isSplit()) {
+			System.out.println(":: generating shard " + shard + " with the objects " + first + " to " + (end - 1));
+		}
+		journal = null;
+		if (checkpoint) {
+			if (target.isArchive()) {
+				throw new IOException("Checkpoints are not supported when writing into an archive");
+			}
+			journal = CheckpointJournal.open(resultFile);
+			if (journal.getNumDone() > 0) {
+				System.out.println(":: resuming from " + journal.getFile().getAbsolutePath() + ", "
+						+ journal.getNumDone() + " objects have been generated already");
+			}
+		}
+		manifest = openManifest(target, resultFile, first);
+		if (compression == Compression.STREAM) {
+			final String name = resultFile.getName();
+			final int dot = name.lastIndexOf('.');
+			gzipStreamName = (dot < 0 ? name : name.substring(0, dot)) + ".xml.gz";
+			gzipStream = new RandomAccessFile(new File(((DirectoryTarget) target).getDirectory(), gzipStreamName), "rw")
+					.getChannel();
+			gzipStream.truncate(0);
+			gzipStreamPosition.set(0);
+		}
+		final AtomicInteger nextIndex = new AtomicInteger(first);
+		numDone = new AtomicInteger(journal == null ? 0 : journal.getNumDone());
+		metrics = new GeneratorMetrics(prefix.substring(0, prefix.length() - 1), streaming ? -1 : end - first
+				- numDone.get());
+		metrics.register();
+		if (pool != null) {
+			pool.register(metrics);
+		}
+		// without a shared pool the workers run on threads of their own
+		final ExecutorService executor = pool == null ? Executors.newFixedThreadPool(numThreads) : null;
+		// the threads of the staging pool are only started if a generator stages files
+		stagingExecutor = Executors.newFixedThreadPool(numThreads);
+		writeStage = numWriteThreads == 0 ? null : new PipelineStage<Job>(numWriteThreads, numWriteThreads
+				* QUEUE_CAPACITY_PER_THREAD) {
+			@Override
+			Handler<Job> createHandler() {
+				final GeneratorMetrics.Recorder recorder = metrics.newRecorder();
+				recorder.start();
+				return new Sink(target, new MarshallingWriter<T>(type), recorder);
+			}
+		};
+		compressStage = numCompressThreads == 0 ? null : new PipelineStage<Job>(numCompressThreads, numCompressThreads
+				* QUEUE_CAPACITY_PER_THREAD) {
+			@Override
+			Handler<Job> createHandler() {
+				return new CompressHandler(target, compressionLevel);
+			}
+		};
+		marshalStage = numMarshalThreads == 0 ? null : new PipelineStage<Job>(numMarshalThreads, numMarshalThreads
+				* QUEUE_CAPACITY_PER_THREAD) {
+			@Override
+			Handler<Job> createHandler() {
+				return new MarshalHandler(target);
+			}
+		};
+		// rendered templates are only held by the workers and the write stage
+		freeBuffers = new ArrayBlockingQueue<ByteBuffer>(numThreads + numWriteThreads * (QUEUE_CAPACITY_PER_THREAD + 1));
+		final List<PipelineStage<Job>> stages = new ArrayList<PipelineStage<Job>>(3);
+		for (PipelineStage<Job> stage : Arrays.asList(marshalStage, compressStage, writeStage)) {
+			if (stage != null) {
+				stages.add(stage);
+			}
+		}
+		final List<Future<?>> tasks = new ArrayList<Future<?>>(numThreads + numMarshalThreads + numCompressThreads
+				+ numWriteThreads);
+		try {
+			if (journal != null) {
+				for (Map.Entry<Integer, ManifestEntry> done : journal.getUnlisted().entrySet()) {
+					manifest.add(done.getKey(), done.getValue());
+				}
+			}
+			for (PipelineStage<Job> stage : stages) {
+				stage.start();
+				tasks.addAll(stage.getThreads());
+			}
+			final List<Future<?>> workers = new ArrayList<Future<?>>(numThreads);
+			for (int i = 0; i < numThreads; i++) {
+				final Worker worker = new Worker(target, end, nextIndex);
+				workers.add(pool == null ? executor.submit(worker) : pool.submit(worker));
+			}
+			tasks.addAll(workers);
+			if (executor != null) {
+				executor.shutdown();
+			}
+			while (!isDone(workers, 250)) {
+				checkWorkers(tasks);
+				printProgress(end - first, false);
+			}
+			// drain the stages in the order of the pipeline
+			for (PipelineStage<Job> stage : stages) {
+				checkWorkers(tasks);
+				stage.close();
+				while (!stage.awaitTermination(250, TimeUnit.MILLISECONDS)) {
+					checkWorkers(tasks);
+					printProgress(end - first, false);
+				}
+			}
+			checkWorkers(tasks);
+			closeManifest(target, resultFile);
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+			for (Future<?> task : tasks) {
+				// stops the workers on the shared pool after their current slice
+				task.cancel(false);
+			}
+			for (PipelineStage<Job> stage : stages) {
+				stage.abort();
+			}
+			stagingExecutor.shutdownNow();
+			metrics.finish();
+			IOUtils.closeQuietly(gzipStream);
+			gzipStream = null;
+			IOUtils.closeQuietly(manifest);
+			IOUtils.closeQuietly(journal);
+		}
+		printProgress(end - first, true);
+		writeReport(resultFile);
+	}
+
+	private void printProgress(final int numObjects, final boolean lineBreak) {
+		if (pool != null) {
+			// the progress of all generators sharing the pool is printed by the pool's owner
+			return;
+		}
+		if (streaming) {
+			ProgressBar.printProgressCount(numDone.get(), lineBreak, metrics.getStatus());
+		} else {
+			ProgressBar.printProgressBar(lineBreak ? 100 : (int) ((double) numDone.get() / (double) numObjects * 100d),
+					lineBreak, metrics.getStatus());
+		}
+	}
+
+	/**
+	 * Write the metrics of the run next to the result file
+	 */
+	private void writeReport(final File resultFile) {
+		final String name = resultFile.getName();
+		final int dot = name.lastIndexOf('.');
+		final File report = new File(resultFile.getAbsoluteFile().getParentFile(), (dot < 0 ? name : name.substring(0,
+				dot)) + ".metrics.json");
+		try {
+			report.getParentFile().mkdirs();
+			metrics.writeReport(report);
+			System.out.println(":: metrics written to " + report.getAbsolutePath());
+		} catch (IOException e) {
+			System.err.println("Unable to write the metrics to " + report.getAbsolutePath() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the metrics of the current or last run
+	 */
+	GeneratorMetrics getMetrics() {
+		return metrics;
+	}
+
+	private ManifestWriter openManifest(final OutputTarget target, final File resultFile, final int first)
+			throws IOException {
+		final ManifestFormat format = ManifestFormat.fromProperties(properties);
+		final String pathPrefix = properties.getProperty(CommandlineInterface.PROPERTY_MANIFEST_PREFIX,
+				ManifestWriter.DEFAULT_PREFIX);
+		if (target.isArchive()) {
+			// the result file is added to the archive after the objects
+			archiveManifest = new ByteArrayOutputStream();
+			return new ManifestWriter(archiveManifest, format, pathPrefix, first, 0);
+		}
+		if (journal == null || journal.getManifestIndex() < first) {
+			return new ManifestWriter(Channels.newOutputStream(target.openResultFile(resultFile)), format, pathPrefix,
+					first, 0);
+		}
+		// drop the entries appended after the last checkpoint, they are rewritten from the journal
+		final FileChannel channel = new RandomAccessFile(resultFile, "rw").getChannel();
+		channel.truncate(journal.getManifestLength());
+		channel.position(journal.getManifestLength());
+		return new ManifestWriter(Channels.newOutputStream(channel), format, pathPrefix, journal.getManifestIndex(),
+				journal.getManifestLength());
+	}
+
+	private void closeManifest(final OutputTarget target, final File resultFile) throws IOException {
+		synchronized (resultLock) {
+			manifest.flush(0);
+			if (journal != null) {
+				journal.manifestFlushed(manifest.getNextIndex(), manifest.getLength());
+			}
+			manifest.close();
+		}
+		if (target.isArchive()) {
+			final OutputStream out = Channels.newOutputStream(target.openResultFile(resultFile));
+			try {
+				archiveManifest.writeTo(out);
+			} finally {
+				out.close();
+			}
+		}
+	}
+
+	private void completed(final int index, final ManifestEntry entry) throws Exception {
+		synchronized (resultLock) {
+			if (journal != null) {
+				journal.done(index, entry);
+			}
+			manifest.add(index, entry);
+			generatorSink.generated(index, entry.getName(), sinkTarget.getFile(entry.getName()));
+			if (manifest.flush(MANIFEST_FLUSH_INTERVAL) && journal != null) {
+				journal.manifestFlushed(manifest.getNextIndex(), manifest.getLength());
+			}
+		}
+	}
+
+	/**
+	 * Wait until all tasks are done or the timeout has passed
+	 *
+	 * @return true if all tasks are done
+	 */
+	static boolean isDone(final List<Future<?>> tasks, final long timeoutMillis) throws InterruptedException {
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		for (Future<?> task : tasks) {
+			final long remaining = deadline - System.nanoTime();
+			if (remaining <= 0) {
+				return false;
+			}
+			try {
+				task.get(remaining, TimeUnit.NANOSECONDS);
+			} catch (TimeoutException e) {
+				return false;
+			} catch (ExecutionException e) {
+				// the failure is rethrown by checkWorkers()
+				return true;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Rethrow the first failure of a finished worker, so that the run is aborted as soon as possible
+	 */
+	private static void checkWorkers(final List<Future<?>> workers) throws Exception {
+		for (Future<?> worker : workers) {
+			if (!worker.isDone()) {
+				continue;
+			}
+			getResult(worker);
+		}
+	}
+
+	/**
+	 * Append a gzip member to the stream of the run. The space of the member is reserved first, so the members of
+	 * several threads are written in parallel
+	 *
+	 * @return the offset of the member
+	 */
+	private long appendToStream(final ByteBuffer member) throws IOException {
+		final long offset = gzipStreamPosition.getAndAdd(member.remaining());
+		long position = offset;
+		while (member.hasRemaining()) {
+			position += gzipStream.write(member, position);
+		}
+		return offset;
+	}
+
+	/**
+	 * Wait for a task and rethrow the cause of its failure
+	 */
+	static void getResult(final Future<?> task) throws Exception {
+		try {
+			task.get();
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Worker creating objects until all indices have been claimed. Every worker owns its {@link MarshallingWriter},
+	 * {@link RandomContentWriter} and {@link FastRandom}, so there is no shared state between the workers except for
+	 * the index counters and the result file. The objects are marshalled and written by the worker itself or passed on
+	 * to the marshal or write stage if the stage has threads of its own. Files staged by an object are copied by the
+	 * staging pool while the worker continues with the next objects.
+	 * <p>
+	 * In template mode the worker records the variable values handed out while an object is created, i.e. names, UUIDs
+	 * and {@link #slot(String)}s. Objects producing the same sequence of kinds of values share a template, which is
+	 * compiled by creating the object a second time as a prototype whose values are replaced by markers. Every
+	 * template's first object and every n-th object are marshalled as well and compared with the rendered XML
+	 */
+	final class Worker implements Callable<Void>, GeneratorPool.Task {
+		private final MarshallingWriter<T> writer = new MarshallingWriter<T>(type);
+		private final FastRandom random = new FastRandom();
+		private final GeneratorMetrics.Recorder recorder = metrics.newRecorder();
+		private final RandomContentWriter contentWriter = createContentWriter();
+		private RandomContentWriter pooledContentWriter;
+		private final OutputTarget target;
+		private final int end;
+		private final AtomicInteger nextIndex;
+		private final Sink sink;
+		private long nestedNanos;
+		private List<Future<?>> staged;
+		private Object input;
+		private long objectSeed;
+		private boolean recording;
+		private boolean prototype;
+		private final List<String> slotValues = new ArrayList<String>();
+		private final StringBuilder slotKinds = new StringBuilder();
+
+		private Worker(final OutputTarget target, final int end, final AtomicInteger nextIndex) {
+			this.target = target;
+			this.end = end;
+			this.nextIndex = nextIndex;
+			this.sink = compressStage == null && writeStage == null ? new Sink(target, writer, recorder) : null;
+		}
+
+		public Void call() throws Exception {
+			runSlice(Integer.MAX_VALUE);
+			return null;
+		}
+
+		public boolean runSlice(final int maxObjects) throws Exception {
+			recorder.start();
+			for (int n = 0; n < maxObjects; n++) {
+				final int i = claim();
+				if (i < 0 || Thread.currentThread().isInterrupted()) {
+					if (sink != null) {
+						sink.close();
+					}
+					return true;
+				}
+				if (journal == null || !journal.isDone(i)) {
+					create(i);
+				}
+			}
+			return false;
+		}
+
+		private void create(final int i) throws Exception {
+			if (seed != null || templates != null) {
+				// a prototype is created from the same random state as the object
+				objectSeed = seed != null ? FastRandom.derive(seed, prefix, i) : random.nextLong();
+				random.setSeed(objectSeed);
+			}
+			if (seed != null) {
+				contentWriter.getRandom().setSeed(random.nextLong());
+			}
+			nestedNanos = 0;
+			staged = null;
+			slotValues.clear();
+			slotKinds.setLength(0);
+			recording = templates != null;
+			long start = System.nanoTime();
+			final T object;
+			try {
+				object = createObject(i, this);
+			} finally {
+				recording = false;
+			}
+			recorder.record(Stage.CONSTRUCT, System.nanoTime() - start - nestedNanos);
+			final Job job = new Job(i, createXmlName(i), staged);
+			start = System.nanoTime();
+			job.document = templates == null ? null : render(i, object);
+			if (job.document != null) {
+				recorder.record(Stage.MARSHAL, System.nanoTime() - start);
+			} else {
+				job.object = object;
+			}
+			if (job.document == null && marshalStage != null) {
+				marshalStage.put(job);
+			} else {
+				if (job.document == null) {
+					marshal(job, writer, recorder);
+				}
+				marshalled(job, sink);
+			}
+			recorder.updateAllocated();
+		}
+
+		/**
+		 * Create the name of an object's XML file. The members of a gzip stream are named by their index, since no file
+		 * is created for them
+		 */
+		private String createXmlName(final int index) throws IOException {
+			if (compression == Compression.STREAM) {
+				return prefix + index + ".xml";
+			}
+			return createName(index, prefix, compression == Compression.FILES ? ".xml.gz" : ".xml");
+		}
+
+		private int claim() throws Exception {
+			if (streaming) {
+				return claimIndex(nextIndex, this);
+			}
+			final int index = nextIndex.getAndIncrement();
+			return index < end ? index : -1;
+		}
+
+		/**
+		 * Render the XML of an object from the template of its structure
+		 *
+		 * @return the buffer containing the XML or null if the object has to be marshalled since one of its values has
+		 *         to be escaped
+		 */
+		private ByteBuffer render(final int index, final T object) throws Exception {
+			for (String value : slotValues) {
+				if (!XmlTemplate.isVerbatim(value)) {
+					return null;
+				}
+			}
+			final String signature = slotKinds.toString();
+			XmlTemplate template = templates.get(signature);
+			boolean verify = templateVerifyInterval > 0 && index % templateVerifyInterval == 0;
+			if (template == null) {
+				template = compileTemplate(index, signature);
+				final XmlTemplate existing = templates.putIfAbsent(signature, template);
+				if (existing != null) {
+					template = existing;
+				}
+				verify = templateVerifyInterval > 0;
+			}
+			final ByteBuffer document = template.render(slotValues.toArray(new String[slotValues.size()]), freeBuffers
+					.poll());
+			if (verify) {
+				verify(index, writer.marshal(object), document);
+			}
+			return document;
+		}
+
+		/**
+		 * Create the object a second time with markers instead of its values and compile its XML
+		 */
+		private XmlTemplate compileTemplate(final int index, final String signature) throws Exception {
+			final List<String> values = new ArrayList<String>(slotValues);
+			random.setSeed(objectSeed);
+			if (seed != null) {
+				// skip the seed of the content writer
+				random.nextLong();
+			}
+			slotValues.clear();
+			slotKinds.setLength(0);
+			recording = true;
+			prototype = true;
+			try {
+				final String xml = writer.marshal(createObject(index, this));
+				if (!slotKinds.toString().equals(signature)) {
+					throw new IllegalStateException("The prototype of the object " + index
+							+ " differs from the object, createObject() is not repeatable");
+				}
+				return XmlTemplate.compile(xml, slotValues.toArray(new String[slotValues.size()]));
+			} finally {
+				recording = false;
+				prototype = false;
+				slotValues.clear();
+				slotValues.addAll(values);
+			}
+		}
+
+		/**
+		 * Compare the rendered XML of an object with the marshalled one
+		 */
+		private void verify(final int index, final String xml, final ByteBuffer rendered) throws IOException {
+			final byte[] expected = xml.getBytes(StandardCharsets.UTF_8);
+			final ByteBuffer actual = rendered.duplicate();
+			final int length = Math.min(expected.length, actual.remaining());
+			int offset = 0;
+			while (offset < length && expected[offset] == actual.get(offset)) {
+				offset++;
+			}
+			if (offset < length || expected.length != actual.remaining()) {
+				throw new IOException("The XML rendered from the template of the object " + index
+						+ " differs from the marshalled XML at byte " + offset);
+			}
+		}
+
+		/**
+		 * Record a variable value of the current object in template mode
+		 */
+		private String record(final char kind, final String value) {
+			if (recording) {
+				slotValues.add(value);
+				slotKinds.append(kind);
+			}
+			return value;
+		}
+
+		/**
+		 * @return the marker of the next value of a prototype, all markers have the same length
+		 */
+		private String createMarker() {
+			return "x" + Long.toHexString(MARKER_BITS) + "x" + String.format("%08d", slotValues.size()) + "x";
+		}
+
+		/**
+		 * Create the name of a file belonging to an object. When checkpoints are enabled, a seed or a shard is set the
+		 * names are derived from the object's index, so files of an object which has been generated partially are
+		 * overwritten on resume, seeded runs produce the same names and the names of all shards are unique
+		 */
+		String createName(final int index, final String namePrefix, final String suffix) throws IOException {
+			if (prototype) {
+				return record('N', createMarker());
+			}
+			if (journal != null || seed != null || shard.isSplit()) {
+				return record('N', namePrefix + index + suffix);
+			}
+			final long start = System.nanoTime();
+			final String name = target.createName(namePrefix, suffix);
+			final long nanos = System.nanoTime() - start;
+			recorder.record(Stage.NAME, nanos);
+			nestedNanos += nanos;
+			return record('N', name);
+		}
+
+		/**
+		 * Write a random content file of the current object to the target
+		 *
+		 * @param name
+		 *            the name of the file
+		 * @param size
+		 *            the number of bytes to write
+		 * @throws IOException
+		 */
+		void writeContent(final String name, final long size) throws IOException {
+			if (prototype) {
+				return;
+			}
+			final long start = System.nanoTime();
+			target.writeRandomContent(name, contentWriter, size);
+			final long nanos = System.nanoTime() - start;
+			recorder.record(Stage.CONTENT, nanos);
+			recorder.addBytes(size);
+			nestedNanos += nanos;
+		}
+
+		private RandomContentWriter createContentWriter() {
+			final RandomContentWriter contentWriter = new RandomContentWriter();
+			contentWriter.setFileMode(contentMode);
+			if (sparsePattern != null) {
+				contentWriter.setSparsePattern(sparsePattern[0], sparsePattern[1]);
+			}
+			return contentWriter;
+		}
+
+		/**
+		 * Write a content of a pool to the target unless it is written by another object, in which case the current
+		 * object is completed after the other object has written the content
+		 *
+		 * @param pool
+		 *            the pool
+		 * @param content
+		 *            the index of the content in the pool
+		 * @throws IOException
+		 */
+		void writePooledContent(final ContentPool pool, final int content) throws IOException {
+			if (prototype) {
+				return;
+			}
+			if (!pool.claim(content)) {
+				addStaged(pool.getWrite(content));
+				return;
+			}
+			if (pooledContentWriter == null) {
+				// the random state of the current object's contents is not touched
+				pooledContentWriter = createContentWriter();
+			}
+			pooledContentWriter.getRandom().setSeed(pool.getSeed(content));
+			final long start = System.nanoTime();
+			boolean success = false;
+			try {
+				target.writeRandomContent(ContentPool.getName(content), pooledContentWriter, pool.getSize(content));
+				success = true;
+			} finally {
+				pool.written(content, success);
+			}
+			final long nanos = System.nanoTime() - start;
+			recorder.record(Stage.CONTENT, nanos);
+			recorder.addBytes(pool.getSize(content));
+			nestedNanos += nanos;
+		}
+
+		/**
+		 * Place an existing file of the current object into the target. The file is staged by the staging pool in
+		 * parallel to the worker, the object is completed after all of its files have been staged
+		 *
+		 * @param name
+		 *            the name of the file in the target
+		 * @param source
+		 *            the file to stage
+		 */
+		void stageFile(final String name, final File source) {
+			if (prototype) {
+				return;
+			}
+			addStaged(stagingExecutor.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					final long start = System.nanoTime();
+					recorder.addBytes(target.stageFile(name, source));
+					recorder.record(Stage.STAGE, System.nanoTime() - start);
+					return null;
+				}
+			}));
+		}
+
+		/**
+		 * Delay the completion of the current object until a task is done
+		 */
+		private void addStaged(final Future<?> task) {
+			if (staged == null) {
+				staged = new ArrayList<Future<?>>(1);
+			}
+			staged.add(task);
+		}
+
+		/**
+		 * @return the random of the current object, which is derived from the seed of the object in seeded runs
+		 */
+		FastRandom getRandom() {
+			return random;
+		}
+
+		/**
+		 * @return a new UUID, which is derived from the seed of the current object in seeded runs
+		 */
+		UUID createUUID() {
+			UUID uuid = random.nextUUID();
+			if (recording) {
+				if (prototype) {
+					uuid = new UUID(MARKER_BITS, 0x8000000000000000L | slotValues.size());
+				}
+				record('U', uuid.toString());
+			}
+			return uuid;
+		}
+
+		/**
+		 * Declare a value of the current object which varies between objects and is not created by the worker, like
+		 * the path of an input file. In template mode values which are not passed through this method are taken from
+		 * the prototype
+		 *
+		 * @param value
+		 *            the value
+		 * @return the value to use in the object
+		 */
+		String slot(final String value) {
+			return record('S', prototype ? createMarker() : value);
+		}
+
+		/**
+		 * @return the input assigned to the current object by {@link AbstractGenerator#claimIndex(AtomicInteger, Worker)}
+		 */
+		Object getInput() {
+			return input;
+		}
+
+		void setInput(final Object input) {
+			this.input = input;
+		}
+
+		/**
+		 * @return the last modification date for metadata records, which is fixed in seeded runs and constant during a
+		 *         run in template mode
+		 */
+		DateTime getModificationDate() {
+			if (seed != null) {
+				return SEEDED_MODIFICATION_DATE;
+			}
+			return templates == null ? new DateTime() : runDate;
+		}
+
+		OutputTarget getTarget() {
+			return target;
+		}
+	}
+
+	private void marshal(final Job job, final MarshallingWriter<T> writer, final GeneratorMetrics.Recorder recorder)
+			throws Exception {
+		final long start = System.nanoTime();
+		job.xml = writer.marshal(job.object);
+		job.object = null;
+		recorder.record(Stage.MARSHAL, System.nanoTime() - start);
+	}
+
+	/**
+	 * Pass a marshalled object on to the next stage which has threads of its own or write it by the sink of the
+	 * calling thread
+	 */
+	private void marshalled(final Job job, final Sink sink) throws Exception {
+		if (compressStage != null) {
+			compressStage.put(job);
+		} else if (writeStage != null) {
+			writeStage.put(job);
+		} else {
+			sink.handle(job);
+		}
+	}
+
+	/**
+	 * Compresses the objects taken by a thread of the compress stage and writes them or passes them on to the write
+	 * stage
+	 */
+	private final class CompressHandler implements PipelineStage.Handler<Job> {
+		private final GeneratorMetrics.Recorder recorder = metrics.newRecorder();
+		private final GzipEncoder encoder;
+		private final Sink sink;
+		private byte[] data = new byte[64 * 1024];
+
+		private CompressHandler(final OutputTarget target, final int level) {
+			recorder.start();
+			encoder = new GzipEncoder(level);
+			sink = writeStage == null ? new Sink(target, new MarshallingWriter<T>(type), recorder) : null;
+		}
+
+		public void handle(final Job job) throws Exception {
+			final long start = System.nanoTime();
+			final int length;
+			if (job.document != null) {
+				length = job.document.remaining();
+				if (data.length < length) {
+					data = new byte[Math.max(length, data.length * 2)];
+				}
+				job.document.get(data, 0, length);
+				freeBuffers.offer(job.document);
+				job.document = null;
+				job.compressed = encoder.encode(data, length);
+			} else {
+				final byte[] xml = job.xml.getBytes(StandardCharsets.UTF_8);
+				length = xml.length;
+				job.xml = null;
+				job.compressed = encoder.encode(xml, length);
+			}
+			job.size = length;
+			recorder.record(Stage.COMPRESS, System.nanoTime() - start);
+			if (sink == null) {
+				writeStage.put(job);
+			} else {
+				sink.handle(job);
+			}
+			recorder.updateAllocated();
+		}
+
+		public void close() throws Exception {
+			encoder.end();
+			if (sink != null) {
+				sink.close();
+			}
+		}
+	}
+
+	/**
+	 * Marshals the objects taken by a thread of the marshal stage and writes them or passes them on to the write stage
+	 */
+	private final class MarshalHandler implements PipelineStage.Handler<Job> {
+		private final MarshallingWriter<T> writer = new MarshallingWriter<T>(type);
+		private final GeneratorMetrics.Recorder recorder = metrics.newRecorder();
+		private final Sink sink;
+
+		private MarshalHandler(final OutputTarget target) {
+			recorder.start();
+			sink = compressStage == null && writeStage == null ? new Sink(target, writer, recorder) : null;
+		}
+
+		public void handle(final Job job) throws Exception {
+			marshal(job, writer, recorder);
+			marshalled(job, sink);
+			recorder.updateAllocated();
+		}
+
+		public void close() throws Exception {
+			if (sink != null) {
+				sink.close();
+			}
+		}
+	}
+
+	/**
+	 * Writes the XML of objects and completes them as soon as their staged files have been copied. A sink is owned by
+	 * the thread writing the objects, which is a worker or a thread of the marshal or write stage
+	 */
+	private final class Sink implements PipelineStage.Handler<Job> {
+		private final OutputTarget target;
+		private final MarshallingWriter<T> writer;
+		private final GeneratorMetrics.Recorder recorder;
+		private final Deque<Job> pending = new ArrayDeque<Job>();
+
+		private Sink(final OutputTarget target, final MarshallingWriter<T> writer,
+				final GeneratorMetrics.Recorder recorder) {
+			this.target = target;
+			this.writer = writer;
+			this.recorder = recorder;
+		}
+
+		public void handle(final Job job) throws Exception {
+			final long start = System.nanoTime();
+			if (job.compressed != null) {
+				final long compressedSize = job.compressed.remaining();
+				if (gzipStream != null) {
+					job.entry = new ManifestEntry(job.name, gzipStreamName, appendToStream(job.compressed), job.size,
+							compressedSize);
+				} else {
+					writer.write(job.compressed, target, job.name);
+					job.entry = new ManifestEntry(job.name, job.name, -1, job.size, compressedSize);
+				}
+				recorder.addBytes(compressedSize);
+				job.compressed = null;
+			} else if (job.document != null) {
+				recorder.addBytes(writer.write(job.document, target, job.name));
+				freeBuffers.offer(job.document);
+				job.document = null;
+			} else {
+				recorder.addBytes(writer.write(job.xml, target, job.name));
+				job.xml = null;
+			}
+			recorder.record(Stage.WRITE, System.nanoTime() - start);
+			if (job.staged == null) {
+				complete(job);
+			} else {
+				pending.add(job);
+			}
+			completePending(MAX_PENDING_OBJECTS);
+			recorder.updateAllocated();
+		}
+
+		public void close() throws Exception {
+			completePending(0);
+		}
+
+		private void complete(final Job job) throws Exception {
+			final long start = System.nanoTime();
+			completed(job.index, job.entry == null ? new ManifestEntry(job.name) : job.entry);
+			recorder.record(Stage.MANIFEST, System.nanoTime() - start);
+			recorder.objectDone();
+			numDone.incrementAndGet();
+		}
+
+		/**
+		 * Complete the pending objects whose files have been staged, waiting for the oldest ones while more than the
+		 * given number of objects are pending
+		 */
+		private void completePending(final int maxPending) throws Exception {
+			while (pending.size() > maxPending) {
+				final Job oldest = pending.poll();
+				for (Future<?> task : oldest.staged) {
+					getResult(task);
+				}
+				complete(oldest);
+			}
+			for (Iterator<Job> jobs = pending.iterator(); jobs.hasNext();) {
+				final Job job = jobs.next();
+				if (job.isStaged()) {
+					for (Future<?> task : job.staged) {
+						// rethrow failures
+						getResult(task);
+					}
+					complete(job);
+					jobs.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * An object passing through the pipeline. The object is released as soon as it has been marshalled and its XML
+	 * as soon as it has been written, but its staged files may still be copied
+	 */
+	private final class Job {
+		private final int index;
+		private final String name;
+		private final List<Future<?>> staged;
+		private T object;
+		private String xml;
+		private ByteBuffer document;
+		private ByteBuffer compressed;
+		private long size;
+		private ManifestEntry entry;
+
+		private Job(final int index, final String name, final List<Future<?>> staged) {
+			this.index = index;
+			this.name = name;
+			this.staged = staged;
+		}
+
+		private boolean isStaged() {
+			for (Future<?> task : staged) {
+				if (!task.isDone()) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
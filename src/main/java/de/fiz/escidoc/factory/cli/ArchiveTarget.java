@@ -0,0 +1,190 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.IOUtils;
+
+import de.fiz.escidoc.factory.RandomContentWriter;
+
+/**
+ * {@link OutputTarget} streaming every generated file directly into a JAR archive, so no intermediate files are
+ * written. XML and result files are deflated, random content is stored uncompressed. Archives larger than 4 GB and
+ * entries with more than 4 GB are written in the ZIP64 format by the JRE's {@link JarOutputStream}. Staged files are
+ * stored uncompressed as well, their checksum is calculated before the archive is locked. Since the
+ * entries of an archive are written one after another, concurrent writers are serialized: {@link #openFile(String)}
+ * blocks until the entry opened by another thread has been closed
+ */
+final class ArchiveTarget extends OutputTarget {
+	private static final int BUFFER_SIZE = 1024 * 1024;
+	private static final int CHECKSUM_BUFFER_SIZE = 256 * 1024;
+
+	private final File archive;
+	private final JarOutputStream out;
+	private final WritableByteChannel channel;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final AtomicLong nameCounter = new AtomicLong();
+
+	ArchiveTarget(final File archive) throws IOException {
+		this.archive = archive;
+		this.out = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(archive), BUFFER_SIZE));
+		this.channel = Channels.newChannel(out);
+	}
+
+	File getArchive() {
+		return archive;
+	}
+
+	@Override
+	String createName(final String prefix, final String suffix) {
+		return prefix + nameCounter.incrementAndGet() + suffix;
+	}
+
+	@Override
+	WritableByteChannel openFile(final String name) throws IOException {
+		return openEntry(new JarEntry(name));
+	}
+
+	@Override
+	WritableByteChannel openResultFile(final File resultFile) throws IOException {
+		return openFile(resultFile.getName());
+	}
+
+	@Override
+	void writeRandomContent(final String name, final RandomContentWriter writer, final long size) throws IOException {
+		// stored entries need their checksum before the data is written. Instead of buffering the data the content
+		// is generated twice from the state of the writer's random, once for the checksum and once for the archive,
+		// so the entry holds the same data and leaves the random in the same state as a file of a directory target
+		final long seed = writer.getRandom().getState();
+		final JarEntry entry = new JarEntry(name);
+		entry.setMethod(ZipEntry.STORED);
+		entry.setSize(size);
+		entry.setCompressedSize(size);
+		entry.setCrc(writer.checksum(size, seed));
+		final WritableByteChannel entryChannel = openEntry(entry);
+		try {
+			writer.write(entryChannel, size, seed);
+		} finally {
+			entryChannel.close();
+		}
+	}
+
+	@Override
+	long stageFile(final String name, final File source) throws IOException {
+		FileInputStream in = null;
+		try {
+			in = new FileInputStream(source);
+			final FileChannel from = in.getChannel();
+			final long size = from.size();
+			final JarEntry entry = new JarEntry(name);
+			entry.setMethod(ZipEntry.STORED);
+			entry.setSize(size);
+			entry.setCompressedSize(size);
+			entry.setCrc(checksum(from));
+			final WritableByteChannel entryChannel = openEntry(entry);
+			try {
+				long position = 0;
+				while (position < size) {
+					final long transferred = from.transferTo(position, size - position, entryChannel);
+					if (transferred <= 0) {
+						throw new IOException(source + " has been truncated while it was staged");
+					}
+					position += transferred;
+				}
+			} finally {
+				entryChannel.close();
+			}
+			return size;
+		} finally {
+			IOUtils.closeQuietly(in);
+		}
+	}
+
+	private static long checksum(final FileChannel channel) throws IOException {
+		final CRC32 crc = new CRC32();
+		final ByteBuffer buffer = ByteBuffer.allocate(CHECKSUM_BUFFER_SIZE);
+		long position = 0;
+		int read;
+		while ((read = channel.read(buffer, position)) > 0) {
+			crc.update(buffer.array(), 0, read);
+			position += read;
+			buffer.clear();
+		}
+		return crc.getValue();
+	}
+
+	@Override
+	OutputTarget forDirectory(final File directory) {
+		return this;
+	}
+
+	@Override
+	File getFile(final String name) {
+		return null;
+	}
+
+	@Override
+	boolean isArchive() {
+		return true;
+	}
+
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			out.close();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private WritableByteChannel openEntry(final JarEntry entry) throws IOException {
+		lock.lock();
+		try {
+			out.putNextEntry(entry);
+		} catch (IOException e) {
+			lock.unlock();
+			throw e;
+		}
+		return new EntryChannel();
+	}
+
+	/**
+	 * Channel writing into the current entry of the archive, closing it finishes the entry and releases the lock
+	 */
+	private final class EntryChannel implements WritableByteChannel {
+		private boolean open = true;
+
+		public int write(final ByteBuffer src) throws IOException {
+			return channel.write(src);
+		}
+
+		public boolean isOpen() {
+			return open;
+		}
+
+		public void close() throws IOException {
+			if (!open) {
+				return;
+			}
+			open = false;
+			try {
+				out.closeEntry();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,189 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Append-only journal of a generator run, which allows an interrupted run to be resumed. The journal contains two
+ * kinds of records:
+ * <ul>
+ * <li><code>D &lt;index&gt; &lt;name&gt;[ &lt;size&gt; &lt;compressed size&gt;]</code>: all files of the object with
+ * the given index have been written and the object's XML file has the given name and, if it is compressed, the given
+ * sizes</li>
+ * <li><code>M &lt;index&gt; &lt;length&gt;</code>: the CSV file contains the entries of all objects with a lower index
+ * and is length bytes long</li>
+ * </ul>
+ * Since the records are written sequentially, every object listed before an M record is complete. When resuming,
+ * the CSV file is truncated to the length of the last M record and the objects recorded as done are skipped. This
+ * class is not thread safe, callers have to synchronize
+ */
+final class CheckpointJournal implements Closeable {
+	private final File file;
+	private final BitSet done = new BitSet();
+	private final Map<Integer, ManifestEntry> unlisted = new HashMap<Integer, ManifestEntry>();
+	private int manifestIndex;
+	private long manifestLength;
+	private Writer out;
+
+	private CheckpointJournal(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Open the journal of a result file, reading the records of a previous run if the journal exists
+	 *
+	 * @param resultFile
+	 *            the result file of the generator
+	 * @return the journal
+	 * @throws IOException
+	 */
+	static CheckpointJournal open(final File resultFile) throws IOException {
+		final CheckpointJournal journal = new CheckpointJournal(new File(resultFile.getAbsolutePath() + ".checkpoint"));
+		final boolean exists = journal.file.exists();
+		final boolean terminated = !exists || journal.read();
+		journal.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(journal.file, exists), "UTF-8"));
+		if (!terminated) {
+			// do not append to the incomplete record
+			journal.out.write("\n");
+		}
+		return journal;
+	}
+
+	private boolean read() throws IOException {
+		// the last record of an interrupted run may be incomplete, records are only valid if terminated
+		final boolean terminated = endsWithNewline();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+			String line = reader.readLine();
+			String next;
+			while (line != null) {
+				next = reader.readLine();
+				if (next != null || terminated) {
+					readRecord(line);
+				}
+				line = next;
+			}
+		} finally {
+			IOUtils.closeQuietly(reader);
+		}
+		return terminated;
+	}
+
+	private void readRecord(final String line) {
+		final String[] record = line.split(" ", 3);
+		if (record.length != 3) {
+			return;
+		}
+		if (record[0].equals("D")) {
+			final int index = Integer.parseInt(record[1]);
+			final String[] entry = record[2].split(" ");
+			done.set(index);
+			unlisted.put(index, entry.length == 3 ? new ManifestEntry(entry[0], entry[0], -1, Long.parseLong(entry[1]),
+					Long.parseLong(entry[2])) : new ManifestEntry(record[2]));
+		} else if (record[0].equals("M")) {
+			manifestIndex = Integer.parseInt(record[1]);
+			manifestLength = Long.parseLong(record[2]);
+			// only the objects after the last M record have to be kept
+			for (Iterator<Integer> indices = unlisted.keySet().iterator(); indices.hasNext();) {
+				if (indices.next() < manifestIndex) {
+					indices.remove();
+				}
+			}
+		}
+	}
+
+	private boolean endsWithNewline() throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if (raf.length() == 0) {
+				return true;
+			}
+			raf.seek(raf.length() - 1);
+			return raf.read() == '\n';
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * @return the file the journal is written to
+	 */
+	File getFile() {
+		return file;
+	}
+
+	/**
+	 * @param index
+	 *            the index of an object
+	 * @return true if the object has been completed by a previous run
+	 */
+	boolean isDone(final int index) {
+		return done.get(index);
+	}
+
+	/**
+	 * @return the number of objects completed by previous runs
+	 */
+	int getNumDone() {
+		return done.cardinality();
+	}
+
+	/**
+	 * @return the objects completed by previous runs which are not yet contained in the CSV file, mapped by index
+	 */
+	Map<Integer, ManifestEntry> getUnlisted() {
+		return unlisted;
+	}
+
+	/**
+	 * @return the index of the first object whose entry is not contained in the CSV file
+	 */
+	int getManifestIndex() {
+		return manifestIndex;
+	}
+
+	/**
+	 * @return the valid length of the CSV file
+	 */
+	long getManifestLength() {
+		return manifestLength;
+	}
+
+	/**
+	 * Record that all files of an object have been written
+	 */
+	void done(final int index, final ManifestEntry entry) throws IOException {
+		out.write("D " + index + " " + entry.getName()
+				+ (entry.isCompressed() ? " " + entry.getSize() + " " + entry.getCompressedSize() : "") + "\n");
+	}
+
+	/**
+	 * Record the state of the CSV file after it has been flushed and flush the journal, so its records survive the end
+	 * of the process. Neither the journal nor the written files are forced to the disk, so a run can be resumed
+	 * reliably after the process has been interrupted, but not after a crash of the system
+	 */
+	void manifestFlushed(final int nextIndex, final long length) throws IOException {
+		out.write("M " + nextIndex + " " + length + "\n");
+		out.flush();
+	}
+
+	public void close() throws IOException {
+		out.close();
+	}
+}
@@ -9,16 +9,63 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarOutputStream;
 
 import org.apache.commons.io.IOUtils;
 
+import de.fiz.escidoc.factory.RandomContentWriter;
+import de.fiz.escidoc.factory.SizeDistribution;
+
 public class CommandlineInterface {
 	static final String PROPERTY_TARGET_DIRECTORY = "generator.target.directory";
+	static final String PROPERTY_NUM_THREADS = "generator.threads";
+	static final String PROPERTY_ARCHIVE = "generator.output.archive";
+	static final String PROPERTY_CHECKPOINT = "generator.checkpoint";
+	static final String PROPERTY_NUM_MARSHAL_THREADS = "generator.threads.marshal";
+	static final String PROPERTY_NUM_WRITE_THREADS = "generator.threads.write";
+	static final String PROPERTY_NUM_COMPRESS_THREADS = "generator.threads.compress";
+	static final String PROPERTY_COMPRESSION = "generator.output.compression";
+	static final String PROPERTY_COMPRESSION_LEVEL = "generator.output.compression.level";
+	static final String PROPERTY_SEED = "generator.seed";
+	static final String PROPERTY_SHARD_INDEX = "generator.shard.index";
+	static final String PROPERTY_SHARD_COUNT = "generator.shard.count";
+	static final String PROPERTY_MANIFEST_PREFIX = "generator.manifest.prefix";
+	static final String PROPERTY_MANIFEST_FORMAT = "generator.manifest.format";
+	static final String PROPERTY_CONTENT_MODE = "generator.content.mode";
+	static final String PROPERTY_CONTENT_SPARSE_PATTERN = "generator.content.sparse.pattern";
+	static final String PROPERTY_XML_TEMPLATE = "generator.xml.template";
+	static final String PROPERTY_XML_TEMPLATE_VERIFY = "generator.xml.template.verify";
+	static final String PROPERTY_INGEST_URL = "generator.ingest.url";
+	static final String PROPERTY_INGEST_HANDLE = "generator.ingest.handle";
+	static final String PROPERTY_INGEST_USER = "generator.ingest.user";
+	static final String PROPERTY_INGEST_PASSWORD = "generator.ingest.password";
+	static final String PROPERTY_INGEST_THREADS = "generator.ingest.threads";
+	static final String PROPERTY_INGEST_BATCH = "generator.ingest.batch";
+	static final String PROPERTY_STUB_PORT = "generator.stub.port";
+	static final String PROPERTY_STUB_LATENCY = "generator.stub.latency";
+	static final String PROPERTY_VIRTUAL_PORT = "generator.virtual.port";
+	static final String PROPERTY_REPLAY_URL = "generator.replay.url";
+	static final String PROPERTY_REPLAY_MANIFESTS = "generator.replay.manifests";
+	static final String PROPERTY_REPLAY_CONCURRENCY = "generator.replay.concurrency";
+	static final String PROPERTY_REPLAY_RATE = "generator.replay.rate";
+	static final String PROPERTY_REPLAY_DURATION = "generator.replay.duration";
+	private static final String STUB_URL = "stub";
+	/**
+	 * The settings of a single run, which are not stored with the generators' settings
+	 */
+	private static final String[] RUN_PROPERTIES = { PROPERTY_ARCHIVE, PROPERTY_CHECKPOINT, PROPERTY_SHARD_INDEX,
+			PROPERTY_SHARD_COUNT, PROPERTY_XML_TEMPLATE, PROPERTY_COMPRESSION, PROPERTY_INGEST_URL,
+			PROPERTY_INGEST_HANDLE, PROPERTY_INGEST_USER, PROPERTY_INGEST_PASSWORD };
 
 	private static final String PROPERTY_VALIDITY = "properties.valid";
 	private static final String PROPERTY_ARTIFACTORY_UPLOAD_URI = "generator.upload.artifatory.url";
@@ -37,14 +84,27 @@ public class CommandlineInterface {
 				.append("-m\tgenerate content models\n")
 				.append("-r\tgenerate content relations\n")
 				.append("-o\tgenerate organizational unit\n")
-				.append("-l <path>\tprefix for generated xmls in CSV files for testplan\n")
+				.append("-g\tgenerate a linked graph of organizational units, contexts, content models, items and content relations which reference each other by placeholder IDs\n")
+				.append("-l <path>\tprefix for generated xmls in CSV files for testplan [default=testdaten/daten/]\n")
+				.append("-j\twrite the testplan files as JSON lines instead of CSV\n")
+				.append("-a <path>\twrite all generated files directly into the given JAR archive instead of the target directory\n")
+				.append("-k\tkeep a checkpoint journal next to the CSV files and resume interrupted runs\n")
+				.append("-t <num>[,<marshal>,<write>]\tnumber of worker threads used for generating the objects [default=number of cores] and optionally of the threads marshalling and writing them. Without threads of their own the objects are marshalled and written by the workers\n")
+				.append("-s <seed>\tderive all names, IDs and content from the given seed, so that runs with the same seed produce identical files\n")
+				.append("-S <index>/<count>\tgenerate only the given shard of the objects, e.g. 0/4 on the first of four machines. The CSV files of all shards can be concatenated\n")
+				.append("-z <mode>\tcompress the XML files, 'gzip' writes a gzip file per object and 'gzip-stream' one gzip stream per generator whose members are listed with their offsets. The files are compressed by a pool of their own\n")
+				.append("-I <url>\tcreate the generated objects in the eSciDoc repository at the given URL while they are generated, 'stub' ingests into an embedded stub server. Requires uncompressed XML files in the target directory\n")
+				.append("-W <port>\tserve the stub repository imitating the create endpoints of eSciDoc on the given port instead of generating anything\n")
+				.append("-V <port>\tserve virtual contents on the given port instead of generating anything. Items whose generator.item.random.virtual.url points to the server reference contents generated on the fly from a seed and a size, which support range requests\n")
+				.append("-R <url>\treplay the testplan files of the target directory against the eSciDoc repository at the given URL instead of generating anything, 'stub' replays them against an embedded stub server. The requests are sent by generator.replay.concurrency threads in a closed loop or, if generator.replay.rate is set, at a fixed rate of requests per second, for generator.replay.duration seconds or once per file\n")
+				.append("-x\trender the XML of the objects from compiled templates instead of marshalling every object\n")
 				.append("The settings will be saved after each run and can be supplied by the -p switch. If -p is ommitted the program will enter interactive mode\n");
 		System.out.println(helpBuilder.toString());
 	}
 
 	public static void main(String[] args) {
 		final Properties properties = new Properties();
-		final Getopt opt = new Getopt("Escidoc objects generator", args, "hicmroup:");
+		final Getopt opt = new Getopt("Escidoc objects generator", args, "hicmrogkuxjp:t:a:s:S:l:z:I:W:R:V:");
 		if (args.length == 0) {
 			printUsage();
 			return;
@@ -71,9 +131,78 @@ public class CommandlineInterface {
 			case 'o':
 				generators.add(new OrganizationalUnitGenerator(properties));
 				break;
+			case 'g':
+				generators.add(new GraphGenerator(properties));
+				break;
 			case 'u':
 				uploadJars=true;
 				break;
+			case 'k':
+				properties.setProperty(PROPERTY_CHECKPOINT, "true");
+				break;
+			case 'x':
+				properties.setProperty(PROPERTY_XML_TEMPLATE, "true");
+				break;
+			case 'j':
+				properties.setProperty(PROPERTY_MANIFEST_FORMAT, "jsonl");
+				break;
+			case 'z':
+				properties.setProperty(PROPERTY_COMPRESSION, opt.getOptarg());
+				break;
+			case 'I':
+				properties.setProperty(PROPERTY_INGEST_URL, opt.getOptarg());
+				break;
+			case 'W':
+				properties.setProperty(PROPERTY_STUB_PORT, opt.getOptarg());
+				break;
+			case 'V':
+				properties.setProperty(PROPERTY_VIRTUAL_PORT, opt.getOptarg());
+				break;
+			case 'R':
+				properties.setProperty(PROPERTY_REPLAY_URL, opt.getOptarg());
+				break;
+			case 'l':
+				properties.setProperty(PROPERTY_MANIFEST_PREFIX, opt.getOptarg());
+				break;
+			case 'a':
+				properties.setProperty(PROPERTY_ARCHIVE, opt.getOptarg());
+				break;
+			case 't':
+				try {
+					final String[] numThreads = opt.getOptarg().split(",");
+					if (numThreads.length != 1 && numThreads.length != 3) {
+						throw new NumberFormatException();
+					}
+					properties.setProperty(PROPERTY_NUM_THREADS, String.valueOf(Integer.parseInt(numThreads[0].trim())));
+					if (numThreads.length == 3) {
+						properties.setProperty(PROPERTY_NUM_MARSHAL_THREADS, String.valueOf(Integer.parseInt(numThreads[1]
+								.trim())));
+						properties.setProperty(PROPERTY_NUM_WRITE_THREADS, String.valueOf(Integer.parseInt(numThreads[2]
+								.trim())));
+					}
+				} catch (NumberFormatException e) {
+					System.err.println("Unable to parse number of threads '" + opt.getOptarg() + "'");
+					return;
+				}
+				break;
+			case 's':
+				try {
+					properties.setProperty(PROPERTY_SEED, String.valueOf(Long.parseLong(opt.getOptarg())));
+				} catch (NumberFormatException e) {
+					System.err.println("Unable to parse seed '" + opt.getOptarg() + "'");
+					return;
+				}
+				break;
+			case 'S':
+				try {
+					final Shard shard = Shard.parse(opt.getOptarg());
+					properties.setProperty(PROPERTY_SHARD_INDEX, String.valueOf(shard.getIndex()));
+					properties.setProperty(PROPERTY_SHARD_COUNT, String.valueOf(shard.getCount()));
+				} catch (IllegalArgumentException e) {
+					System.err.println("Unable to parse shard '" + opt.getOptarg() + "'");
+					return;
+				}
+				break;
 			case 'p':
 				String path = opt.getOptarg();
 				try {
@@ -89,17 +218,84 @@ public class CommandlineInterface {
 				return;
 			}
 		}
+		if (properties.getProperty(PROPERTY_STUB_PORT) != null) {
+			serveStub(properties);
+			return;
+		}
+		if (properties.getProperty(PROPERTY_VIRTUAL_PORT) != null) {
+			serveVirtualContent(properties);
+			return;
+		}
+		if (properties.getProperty(PROPERTY_REPLAY_URL) != null) {
+			replay(properties);
+			return;
+		}
 		// get the settings for the generators through an interactive user
 		// session if no properties have been set already
 		createSettings(properties, generators);
 		// store the properties for convenience
 		storeProperties(properties);
 		// generate the XMLs
-		generateXMLFiles(generators);
+		final String archivePath = properties.getProperty(PROPERTY_ARCHIVE);
+		final OutputTarget target;
+		try {
+			if (archivePath != null && archivePath.length() > 0) {
+				target = new ArchiveTarget(new File(archivePath));
+			} else {
+				target = new DirectoryTarget(new File(properties.getProperty(PROPERTY_TARGET_DIRECTORY)));
+			}
+		} catch (IOException e) {
+			System.err.println("Unable to open archive " + archivePath);
+			return;
+		}
+		final String ingestUrl = properties.getProperty(PROPERTY_INGEST_URL);
+		StubRepositoryServer stub = null;
+		Ingester ingester = null;
+		try {
+			if (ingestUrl != null && ingestUrl.length() > 0) {
+				if (target.isArchive() || Compression.fromProperties(properties) != Compression.NONE) {
+					System.err.println("Ingesting requires uncompressed XML files in the target directory");
+					return;
+				}
+				final URL repository;
+				if (ingestUrl.equals(STUB_URL)) {
+					stub = new StubRepositoryServer(0, getNumThreads(properties), 0);
+					stub.start();
+					repository = stub.getUrl();
+				} else {
+					repository = new URL(ingestUrl);
+				}
+				System.out.println(":: ingesting the objects into " + repository);
+				ingester = Ingester.fromProperties(properties, repository);
+			}
+			generateXMLFiles(generators, target, properties, ingester == null ? GeneratorSink.NONE : ingester);
+			if (ingester != null) {
+				ingester.close();
+				System.out.print(ingester.getReport());
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if (ingester != null) {
+				ingester.abort();
+			}
+			if (stub != null) {
+				stub.stop();
+			}
+			try {
+				target.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
 		// finally upload it to the artifactory
 		if (uploadJars){
 			try {
-				uploadJar(properties, createJar(properties.getProperty(PROPERTY_TARGET_DIRECTORY)));
+				if (target.isArchive()) {
+					uploadJar(properties, new File(archivePath));
+				} else {
+					uploadJar(properties, createJar(properties.getProperty(PROPERTY_TARGET_DIRECTORY)));
+				}
 			} catch (IOException e) {
 				e.printStackTrace();
 			}
@@ -107,6 +303,128 @@ public class CommandlineInterface {
 		System.out.println("\nFinished!\n");
 	}
 
+	/**
+	 * Start the stub repository, which serves requests until the process is terminated
+	 */
+	private static void serveStub(Properties properties) {
+		final String port = properties.getProperty(PROPERTY_STUB_PORT);
+		try {
+			final StubRepositoryServer stub = new StubRepositoryServer(Integer.parseInt(port.trim()),
+					getNumThreads(properties), Long.parseLong(properties.getProperty(PROPERTY_STUB_LATENCY, "0").trim()));
+			stub.start();
+			System.out.println(":: serving the stub repository at " + stub.getUrl() + ", press Ctrl-C to stop");
+		} catch (NumberFormatException e) {
+			System.err.println("Unable to parse port '" + port + "'");
+		} catch (IOException e) {
+			System.err.println("Unable to start the stub repository on port " + port + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Start the virtual content server, which serves requests until the process is terminated
+	 */
+	private static void serveVirtualContent(Properties properties) {
+		final String port = properties.getProperty(PROPERTY_VIRTUAL_PORT);
+		try {
+			final VirtualContentServer server = new VirtualContentServer(Integer.parseInt(port.trim()),
+					getNumThreads(properties));
+			server.start();
+			System.out.println(":: serving virtual contents at " + server.getUrl() + VirtualContentServer.CONTENT_PATH
+					+ "<seed>/<size>, press Ctrl-C to stop");
+		} catch (NumberFormatException e) {
+			System.err.println("Unable to parse port '" + port + "'");
+		} catch (IOException e) {
+			System.err.println("Unable to start the virtual content server on port " + port + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Replay the testplan files against a repository and print the latencies
+	 */
+	private static void replay(Properties properties) {
+		final String replayUrl = properties.getProperty(PROPERTY_REPLAY_URL);
+		StubRepositoryServer stub = null;
+		try {
+			final URL repository;
+			if (replayUrl.equals(STUB_URL)) {
+				stub = new StubRepositoryServer(0, getNumThreads(properties), Long.parseLong(properties.getProperty(
+						PROPERTY_STUB_LATENCY, "0").trim()));
+				stub.start();
+				repository = stub.getUrl();
+			} else {
+				repository = new URL(replayUrl);
+			}
+			final ReplayDriver driver = ReplayDriver.fromProperties(properties, repository);
+			System.out.println(":: replaying the testplan files against " + repository);
+			driver.run();
+			System.out.print(driver.getReport());
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if (stub != null) {
+				stub.stop();
+			}
+		}
+	}
+
+	static int getNumThreads(Properties properties) {
+		final String numThreads = properties.getProperty(PROPERTY_NUM_THREADS);
+		if (numThreads == null || numThreads.length() == 0) {
+			return Runtime.getRuntime().availableProcessors();
+		}
+		return Math.max(1, Integer.parseInt(numThreads));
+	}
+
+	/**
+	 * @return the number of threads of a pipeline stage, 0 if the stage is run by the workers
+	 */
+	static int getNumStageThreads(Properties properties, String property) {
+		final String numThreads = properties.getProperty(property);
+		if (numThreads == null || numThreads.length() == 0) {
+			return 0;
+		}
+		return Math.max(0, Integer.parseInt(numThreads.trim()));
+	}
+
+	/**
+	 * @return the seed of a deterministic run or null if the output should be random
+	 */
+	static Long getSeed(Properties properties) {
+		final String seed = properties.getProperty(PROPERTY_SEED);
+		if (seed == null || seed.length() == 0) {
+			return null;
+		}
+		return Long.parseLong(seed);
+	}
+
+	/**
+	 * @return the way of writing random content files, streamed by default
+	 */
+	static RandomContentWriter.FileMode getContentMode(Properties properties) {
+		final String mode = properties.getProperty(PROPERTY_CONTENT_MODE, "stream").trim();
+		for (RandomContentWriter.FileMode fileMode : RandomContentWriter.FileMode.values()) {
+			if (fileMode.name().equalsIgnoreCase(mode)) {
+				return fileMode;
+			}
+		}
+		throw new IllegalArgumentException("Unknown content mode " + mode + ", expected stream or sparse");
+	}
+
+	/**
+	 * @return the size of the filled blocks and the stride of sparse content files or null for the default pattern
+	 */
+	static long[] getSparsePattern(Properties properties) {
+		final String pattern = properties.getProperty(PROPERTY_CONTENT_SPARSE_PATTERN);
+		if (pattern == null || pattern.length() == 0) {
+			return null;
+		}
+		final String[] values = pattern.split("/");
+		if (values.length != 2) {
+			throw new IllegalArgumentException("Invalid sparse pattern " + pattern + ", expected <block>/<stride>");
+		}
+		return new long[] { SizeDistribution.parseValue(values[0]), SizeDistribution.parseValue(values[1]) };
+	}
+
 	private static void uploadJar(Properties properties, File jarFile) throws IOException{
 		String cli = "mvn deploy:deploy-file -DrepositoryId=snapshots -Durl=" + properties.getProperty(PROPERTY_ARTIFACTORY_UPLOAD_URI) + " -DgroupId=org.escidoc.core.performance -DartifactId=testdaten -Dversion=1.0-SNAPSHOT -Dpackaging=jar -Dfile=" + jarFile.getAbsolutePath();
 		Process proc=Runtime.getRuntime().exec(cli);
@@ -117,15 +435,61 @@ public class CommandlineInterface {
 		}
 	}
 
-	private static void generateXMLFiles(List<Generator> generators) {
+	private static void generateXMLFiles(List<Generator> generators, final OutputTarget target, Properties properties,
+			final GeneratorSink sink) {
 		System.out.println("\nGenerating xml files...");
+		if (generators.size() < 2) {
+			for (final Generator gen : generators) {
+				try {
+					System.out.println(":: running generator " + gen.getClass().getSimpleName());
+					gen.generate(target, sink);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+			return;
+		}
+		// the generators are independent, so they run at the same time and their workers share one pool of threads
+		final GeneratorPool pool = new GeneratorPool(getNumThreads(properties));
+		final ExecutorService runs = Executors.newFixedThreadPool(generators.size());
+		final List<Future<?>> results = new ArrayList<Future<?>>(generators.size());
+		// a sink is called by one thread at a time, the generators running at the same time take turns
+		final GeneratorSink sharedSink = new GeneratorSink() {
+			public synchronized void generated(final int index, final String name, final File file) throws Exception {
+				sink.generated(index, name, file);
+			}
+		};
 		for (final Generator gen : generators) {
-			try {
-				System.out.println(":: running generator " + gen.getClass().getSimpleName());
-				gen.generateFiles();
-			} catch (Exception e) {
-				e.printStackTrace();
+			System.out.println(":: running generator " + gen.getClass().getSimpleName());
+			if (gen instanceof GeneratorPool.Member) {
+				((GeneratorPool.Member) gen).setPool(pool);
+			}
+			results.add(runs.submit(new Callable<Void>() {
+				public Void call() throws Exception {
+					gen.generate(target, sharedSink);
+					return null;
+				}
+			}));
+		}
+		runs.shutdown();
+		try {
+			while (!runs.awaitTermination(250, TimeUnit.MILLISECONDS)) {
+				pool.printProgress(false);
 			}
+			pool.printProgress(true);
+			for (int i = 0; i < results.size(); i++) {
+				try {
+					AbstractGenerator.getResult(results.get(i));
+				} catch (Exception e) {
+					System.err.println(":: generator " + generators.get(i).getClass().getSimpleName() + " failed");
+					e.printStackTrace();
+				}
+			}
+		} catch (InterruptedException e) {
+			runs.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdown();
 		}
 	}
 
@@ -133,7 +497,12 @@ public class CommandlineInterface {
 		System.out.println();
 		try {
 			final File propFile = new File("generator.properties");
-			properties.store(new FileOutputStream(propFile), "created by escidoc-object-generator");
+			final Properties stored = new Properties();
+			stored.putAll(properties);
+			for (String key : RUN_PROPERTIES) {
+				stored.remove(key);
+			}
+			stored.store(new FileOutputStream(propFile), "created by escidoc-object-generator");
 			System.out.println("saved properties to " + propFile.getAbsolutePath());
 		} catch (IOException e) {
 			e.printStackTrace();
@@ -166,12 +535,35 @@ public class CommandlineInterface {
 			}
 		} while (!targetDirectory.exists() && !targetDirectory.canWrite());
 		properties.setProperty(PROPERTY_TARGET_DIRECTORY, targetDirectory.getAbsolutePath());
+		questionNumThreads(properties);
 		for (final Generator gen : generators) {
 			System.out.println(":: Settings for " + gen.getClass().getSimpleName());
 			gen.interactive();
 		}
 	}
 
+	/**
+	 * Ask for the number of worker threads, which are shared by all generators, unless it has been set on the command
+	 * line
+	 */
+	private static void questionNumThreads(Properties properties) {
+		if (properties.getProperty(PROPERTY_NUM_THREADS) != null) {
+			return;
+		}
+		final Questionary q = new Questionary(new BufferedReader(new InputStreamReader(System.in)), System.out);
+		final int cores = Runtime.getRuntime().availableProcessors();
+		try {
+			int numThreads;
+			do {
+				numThreads = q.poseQuestion(Integer.class, cores,
+						"How many threads should be used for generating the objects [default=" + cores + "] ?");
+			} while (numThreads < 1);
+			properties.setProperty(PROPERTY_NUM_THREADS, String.valueOf(numThreads));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 	private static File createJar(String dir) {
 		JarOutputStream out = null;
 		InputStream in = null;
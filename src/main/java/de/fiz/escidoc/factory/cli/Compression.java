@@ -0,0 +1,46 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.util.Properties;
+import java.util.zip.Deflater;
+
+/**
+ * The compression of the generated XML files
+ */
+enum Compression {
+	/** plain XML files */
+	NONE,
+	/** a gzip file per object */
+	FILES,
+	/** one gzip stream per run, every object is a member of its own which can be decompressed separately */
+	STREAM;
+
+	/**
+	 * @return the compression set by {@link CommandlineInterface#PROPERTY_COMPRESSION}, none by default
+	 */
+	static Compression fromProperties(final Properties properties) {
+		final String compression = properties.getProperty(CommandlineInterface.PROPERTY_COMPRESSION, "none").trim();
+		if (compression.equalsIgnoreCase("none")) {
+			return NONE;
+		} else if (compression.equalsIgnoreCase("gzip")) {
+			return FILES;
+		} else if (compression.equalsIgnoreCase("gzip-stream")) {
+			return STREAM;
+		}
+		throw new IllegalArgumentException("Unknown compression " + compression + ", expected none, gzip or gzip-stream");
+	}
+
+	/**
+	 * @return the deflate level set by {@link CommandlineInterface#PROPERTY_COMPRESSION_LEVEL}
+	 */
+	static int getLevel(final Properties properties) {
+		final String level = properties.getProperty(CommandlineInterface.PROPERTY_COMPRESSION_LEVEL);
+		if (level == null || level.length() == 0) {
+			return Deflater.DEFAULT_COMPRESSION;
+		}
+		final int parsed = Integer.parseInt(level.trim());
+		if (parsed < Deflater.NO_COMPRESSION || parsed > Deflater.BEST_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level " + parsed);
+		}
+		return parsed;
+	}
+}
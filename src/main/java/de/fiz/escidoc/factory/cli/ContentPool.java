@@ -0,0 +1,126 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import de.fiz.escidoc.factory.FastRandom;
+import de.fiz.escidoc.factory.SizeDistribution;
+
+/**
+ * A fixed set of random contents shared by the components of the generated items. A component gets content of its
+ * own with the probability of the uniqueness ratio, otherwise it references a content of the pool, chosen by its
+ * popularity following a Zipf distribution. Every content of the pool is written once, by the first object referencing
+ * it, so a dataset of a million items referencing a thousand contents takes the disk space and the time of a thousand
+ * contents. The other objects referencing a content wait for its writing before they are completed. The size and the
+ * bytes of a content are derived from the pool's seed, independent of the object writing it
+ */
+final class ContentPool {
+	private static final String NAME_PREFIX = "pool-";
+	private static final String NAME_SUFFIX = ".content";
+
+	private final double uniqueRatio;
+	private final SizeDistribution popularity;
+	private final long[] sizes;
+	private final long[] seeds;
+	private final AtomicReferenceArray<SettableFuture<Void>> writes;
+
+	/**
+	 * @param numContents
+	 *            the number of contents in the pool
+	 * @param uniqueRatio
+	 *            the probability of a component getting content of its own
+	 * @param skew
+	 *            the exponent of the Zipf distribution of the contents' popularity, 0 references all contents equally
+	 *            often
+	 * @param sizeDistribution
+	 *            the distribution of the contents' sizes
+	 * @param seed
+	 *            the seed of the contents' sizes and bytes or null for random contents
+	 */
+	ContentPool(final int numContents, final double uniqueRatio, final double skew,
+			final SizeDistribution sizeDistribution, final Long seed) {
+		if (numContents < 1) {
+			throw new IllegalArgumentException("The pool requires at least one content");
+		}
+		if (uniqueRatio < 0 || uniqueRatio > 1) {
+			throw new IllegalArgumentException("The uniqueness ratio must be between 0 and 1: " + uniqueRatio);
+		}
+		this.uniqueRatio = uniqueRatio;
+		this.popularity = SizeDistribution.zipf(numContents, skew);
+		this.sizes = new long[numContents];
+		this.seeds = new long[numContents];
+		this.writes = new AtomicReferenceArray<SettableFuture<Void>>(numContents);
+		final FastRandom random = seed == null ? new FastRandom() : new FastRandom(FastRandom.derive(seed, NAME_PREFIX,
+				0));
+		for (int i = 0; i < numContents; i++) {
+			sizes[i] = sizeDistribution.sample(random);
+			seeds[i] = random.nextLong();
+		}
+	}
+
+	/**
+	 * Choose the content of a component
+	 *
+	 * @return the index of the pooled content or -1 if the component gets content of its own
+	 */
+	int select(final FastRandom random) {
+		if (uniqueRatio > 0 && random.nextDouble() < uniqueRatio) {
+			return -1;
+		}
+		return (int) popularity.sample(random) - 1;
+	}
+
+	/**
+	 * Claim the writing of a content
+	 *
+	 * @return true for the first caller only, which has to report the end of the writing by
+	 *         {@link #written(int, boolean)}
+	 */
+	boolean claim(final int content) {
+		return writes.get(content) == null && writes.compareAndSet(content, null, new SettableFuture<Void>());
+	}
+
+	/**
+	 * @return the writing of a claimed content, which is done once the claiming caller has written the content
+	 */
+	Future<Void> getWrite(final int content) {
+		return writes.get(content);
+	}
+
+	/**
+	 * Report the end of the writing of a claimed content
+	 *
+	 * @param success
+	 *            false if the content could not be written
+	 */
+	void written(final int content, final boolean success) {
+		if (success) {
+			writes.get(content).set(null);
+		} else {
+			writes.get(content).setException(new IOException("Unable to write " + getName(content)));
+		}
+	}
+
+	int getNumContents() {
+		return sizes.length;
+	}
+
+	long getSize(final int content) {
+		return sizes[content];
+	}
+
+	/**
+	 * @return the seed of the random bytes of a content
+	 */
+	long getSeed(final int content) {
+		return seeds[content];
+	}
+
+	/**
+	 * @return the name of the file of a content
+	 */
+	static String getName(final int content) {
+		return NAME_PREFIX + content + NAME_SUFFIX;
+	}
+}
@@ -1,18 +1,8 @@
 package de.fiz.escidoc.factory.cli;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Properties;
-import java.util.UUID;
 
-import org.apache.commons.io.IOUtils;
-
-import de.escidoc.core.common.jibx.Marshaller;
 import de.escidoc.core.resources.common.properties.PublicStatus;
 import de.escidoc.core.resources.common.reference.OrganizationalUnitRef;
 import de.escidoc.core.resources.om.context.AdminDescriptor;
@@ -21,70 +11,50 @@ import de.escidoc.core.resources.om.context.Context;
 import de.escidoc.core.resources.om.context.ContextProperties;
 import de.escidoc.core.resources.om.context.OrganizationalUnitRefs;
 
-public class ContextGenerator extends Questionary implements Generator {
-	private static final String PROPERTY_NUMFILES = "generator.context.num";
-	private static final String PROPERTY_ORGANIZATIONAL_UNIT_ID = "generator.context.ou.id";
-	private static final String PROPERTY_RESULT_PATH = "generator.context.result.path";
-
-	private final Properties properties;
-	private final Marshaller<Context> marshaller = Marshaller.getMarshaller(Context.class);
+public class ContextGenerator extends AbstractGenerator<Context> {
+	static final String PROPERTY_NUMFILES = "generator.context.num";
+	static final String PROPERTY_ORGANIZATIONAL_UNIT_ID = "generator.context.ou.id";
+	static final String PROPERTY_RESULT_PATH = "generator.context.result.path";
 
 	ContextGenerator(final Properties properties) {
-		super(new BufferedReader(new InputStreamReader(System.in)), System.out);
-		this.properties = properties;
+		super(properties, Context.class, "context-");
 	}
 
-	public List<File> generateFiles() throws Exception {
-		final List<File> result = new ArrayList<File>();
-		final int numFiles = Integer.parseInt(properties.getProperty(PROPERTY_NUMFILES));
-		final File targetDirectory = new File(properties.getProperty(CommandlineInterface.PROPERTY_TARGET_DIRECTORY));
-		int oldPercent, currentPercent = 0;
-		for (int i = 0; i < numFiles; i++) {
-			final OrganizationalUnitRefs ouRefs = new OrganizationalUnitRefs();
-			ouRefs.add(new OrganizationalUnitRef(properties.getProperty(PROPERTY_ORGANIZATIONAL_UNIT_ID)));
-			final AdminDescriptor desc = new AdminDescriptor("admin");
-			desc.setContent("<void />");
-			final AdminDescriptors adms = new AdminDescriptors();
-			adms.add(desc);
-			final ContextProperties cp = new ContextProperties();
-			cp.setName("context-" + UUID.randomUUID().toString());
-			cp.setPublicStatus(PublicStatus.PENDING);
-			cp.setType("type1");
-			cp.setOrganizationalUnitRefs(ouRefs);
-			cp.setDescription("test-description");
-			final Context ctx = new Context();
-			ctx.setProperties(cp);
-			ctx.setAdminDescriptors(adms);
-			final File xmlFile = File.createTempFile("context-", ".xml", targetDirectory);
-			final String xml = marshaller.marshalDocument(ctx);
-			OutputStream out = null;
-			try {
-				out = new FileOutputStream(xmlFile);
-				IOUtils.write(xml, out);
-				result.add(xmlFile);
-			} finally {
-				IOUtils.closeQuietly(out);
-			}
-			oldPercent = currentPercent;
-			currentPercent = (int) ((double) i / (double) numFiles * 100d);
-			if (currentPercent > oldPercent) {
-				ProgressBar.printProgressBar(currentPercent);
-			}
-		}
-		final File resultFile = new File(properties.getProperty(PROPERTY_RESULT_PATH));
-		FileOutputStream out = null;
-		try {
-			out = new FileOutputStream(resultFile, false);
-			for (File f : result) {
-				out.write(new String("testdaten/daten/" + f.getName() + "," + f.getName() + ",text/xml\n")
-						.getBytes("UTF-8"));
-				out.flush();
-			}
-		} finally {
-			IOUtils.closeQuietly(out);
-		}
-		ProgressBar.printProgressBar(100, true);
-		return result;
+	@Override
+	int getNumObjects() {
+		return Integer.parseInt(properties.getProperty(PROPERTY_NUMFILES));
+	}
+
+	@Override
+	File getResultFile() {
+		return new File(properties.getProperty(PROPERTY_RESULT_PATH));
+	}
+
+	@Override
+	Context createObject(final int index, final Worker worker) {
+		final OrganizationalUnitRefs ouRefs = new OrganizationalUnitRefs();
+		ouRefs.add(new OrganizationalUnitRef(getOrganizationalUnitId(index, worker)));
+		final AdminDescriptor desc = new AdminDescriptor("admin");
+		desc.setContent("<void />");
+		final AdminDescriptors adms = new AdminDescriptors();
+		adms.add(desc);
+		final ContextProperties cp = new ContextProperties();
+		cp.setName("context-" + worker.createUUID().toString());
+		cp.setPublicStatus(PublicStatus.PENDING);
+		cp.setType("type1");
+		cp.setOrganizationalUnitRefs(ouRefs);
+		cp.setDescription("test-description");
+		final Context ctx = new Context();
+		ctx.setProperties(cp);
+		ctx.setAdminDescriptors(adms);
+		return ctx;
+	}
+
+	/**
+	 * @return the ID of the organizational unit referenced by a context
+	 */
+	String getOrganizationalUnitId(final int index, final Worker worker) {
+		return properties.getProperty(PROPERTY_ORGANIZATIONAL_UNIT_ID);
 	}
 
 	public void interactive() {
@@ -0,0 +1,111 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.IOUtils;
+
+import de.fiz.escidoc.factory.RandomContentWriter;
+
+/**
+ * {@link OutputTarget} writing every generated file into a directory. Staged files are hard linked into the directory
+ * if the file system supports it, otherwise they are copied by {@link FileChannel#transferTo(long, long,
+ * WritableByteChannel)}, which lets the kernel copy the data without passing it through the JVM
+ */
+final class DirectoryTarget extends OutputTarget {
+	private final File directory;
+
+	DirectoryTarget(final File directory) {
+		this.directory = directory;
+	}
+
+	File getDirectory() {
+		return directory;
+	}
+
+	@Override
+	File getFile(final String name) {
+		return new File(directory, name);
+	}
+
+	@Override
+	String createName(final String prefix, final String suffix) throws IOException {
+		return File.createTempFile(prefix, suffix, directory).getName();
+	}
+
+	@Override
+	WritableByteChannel openFile(final String name) throws IOException {
+		return new FileOutputStream(new File(directory, name)).getChannel();
+	}
+
+	@Override
+	WritableByteChannel openResultFile(final File resultFile) throws IOException {
+		return new FileOutputStream(resultFile, false).getChannel();
+	}
+
+	@Override
+	void writeRandomContent(final String name, final RandomContentWriter writer, final long size) throws IOException {
+		writer.write(new File(directory, name), size);
+	}
+
+	@Override
+	long stageFile(final String name, final File source) throws IOException {
+		final Path link = new File(directory, name).toPath();
+		// a file of the same name may have been staged by an interrupted run
+		Files.deleteIfExists(link);
+		try {
+			Files.createLink(link, source.toPath());
+			return source.length();
+		} catch (UnsupportedOperationException e) {
+			// the file system does not support hard links
+		} catch (FileSystemException e) {
+			// e.g. the source is on another device
+		}
+		return copy(source, link.toFile());
+	}
+
+	private static long copy(final File source, final File destination) throws IOException {
+		FileInputStream in = null;
+		FileOutputStream out = null;
+		try {
+			in = new FileInputStream(source);
+			out = new FileOutputStream(destination);
+			final FileChannel from = in.getChannel();
+			final FileChannel to = out.getChannel();
+			final long size = from.size();
+			long position = 0;
+			while (position < size) {
+				final long transferred = from.transferTo(position, size - position, to);
+				if (transferred <= 0) {
+					throw new IOException(source + " has been truncated while it was staged");
+				}
+				position += transferred;
+			}
+			return size;
+		} finally {
+			IOUtils.closeQuietly(in);
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	@Override
+	OutputTarget forDirectory(final File dir) {
+		return dir.equals(directory) ? this : new DirectoryTarget(dir);
+	}
+
+	@Override
+	boolean isArchive() {
+		return false;
+	}
+
+	public void close() {
+		// nothing to do, every file is closed after it has been written
+	}
+}
@@ -1,10 +1,17 @@
 package de.fiz.escidoc.factory.cli;
 
-import java.io.File;
-import java.util.List;
-
 public interface Generator {
-	public List<File> generateFiles() throws Exception;
+	/**
+	 * Generate the objects into a target. Every object is handed to the sink as soon as it has been completed, the
+	 * generator does not keep the objects, so a run needs the same memory regardless of the number of objects
+	 *
+	 * @param target
+	 *            the target to write to
+	 * @param sink
+	 *            the sink receiving the generated objects
+	 * @throws Exception
+	 */
+	public void generate(OutputTarget target, GeneratorSink sink) throws Exception;
 
 	public void interactive();
 }
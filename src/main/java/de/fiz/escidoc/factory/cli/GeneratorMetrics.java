@@ -0,0 +1,370 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Throughput, latency and memory metrics of a generator run. Every worker records into a {@link Recorder} of its own,
+ * the recorders are only combined when the metrics are read, so the workers do not contend for the counters. While a
+ * run is in progress the metrics are registered as an MBean with the platform MBean server, at the end of the run
+ * they are written as a JSON report
+ */
+final class GeneratorMetrics implements GeneratorMetricsMBean {
+	/**
+	 * The stages an object passes through, each stage's latencies are recorded separately
+	 */
+	enum Stage {
+		/** creating the object, excluding name and content stages called while creating it */
+		CONSTRUCT,
+		/** creating file names, e.g. by {@link File#createTempFile(String, String, File)} */
+		NAME,
+		/** writing content files */
+		CONTENT,
+		/** placing existing files into the target, which runs in parallel to the other stages */
+		STAGE,
+		/** marshalling the object to XML */
+		MARSHAL,
+		/** compressing the XML */
+		COMPRESS,
+		/** writing the XML file */
+		WRITE,
+		/** appending the entry to the CSV file, including the wait for the lock */
+		MANIFEST;
+
+		String getKey() {
+			return name().toLowerCase(Locale.ENGLISH);
+		}
+	}
+
+	private static final boolean ALLOCATION_SUPPORTED = isAllocationSupported();
+
+	private final String generator;
+	private final long objectsTotal;
+	private final List<Recorder> recorders = new CopyOnWriteArrayList<Recorder>();
+	private final long startNanos = System.nanoTime();
+	private final long gcCountStart = gcCount();
+	private final long gcTimeStart = gcTimeMillis();
+	private volatile long endNanos;
+	private volatile long gcCountEnd;
+	private volatile long gcTimeEnd;
+	private ObjectName objectName;
+
+	/**
+	 * @param generator
+	 *            the name of the generator
+	 * @param objectsTotal
+	 *            the number of objects this run is going to generate or -1 if the number is unknown
+	 */
+	GeneratorMetrics(final String generator, final long objectsTotal) {
+		this.generator = generator;
+		this.objectsTotal = objectsTotal;
+	}
+
+	/**
+	 * @return a new recorder for a worker, which has to be started on the worker's thread
+	 */
+	Recorder newRecorder() {
+		final Recorder recorder = new Recorder();
+		recorders.add(recorder);
+		return recorder;
+	}
+
+	/**
+	 * Register the metrics with the platform MBean server. Failures are reported but do not abort the run
+	 */
+	void register() {
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName("de.fiz.escidoc.factory:type=Generator,name="
+					+ ObjectName.quote(generator));
+			if (server.isRegistered(name)) {
+				server.unregisterMBean(name);
+			}
+			server.registerMBean(this, name);
+			objectName = name;
+		} catch (JMException e) {
+			System.err.println("Unable to register the generator metrics with JMX: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Stop the clocks of this run and unregister the MBean
+	 */
+	void finish() {
+		gcCountEnd = gcCount();
+		gcTimeEnd = gcTimeMillis();
+		endNanos = System.nanoTime();
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				// the MBean has been unregistered already
+			}
+			objectName = null;
+		}
+	}
+
+	public String getGenerator() {
+		return generator;
+	}
+
+	public long getObjectsGenerated() {
+		long objects = 0;
+		for (Recorder recorder : recorders) {
+			objects += recorder.objects.get();
+		}
+		return objects;
+	}
+
+	public long getObjectsTotal() {
+		return objectsTotal;
+	}
+
+	public long getBytesWritten() {
+		long bytes = 0;
+		for (Recorder recorder : recorders) {
+			bytes += recorder.bytes.get();
+		}
+		return bytes;
+	}
+
+	public double getElapsedSeconds() {
+		final long end = endNanos == 0 ? System.nanoTime() : endNanos;
+		return (end - startNanos) / 1e9d;
+	}
+
+	public double getObjectsPerSecond() {
+		final double elapsed = getElapsedSeconds();
+		return elapsed > 0 ? getObjectsGenerated() / elapsed : 0d;
+	}
+
+	public double getBytesPerSecond() {
+		final double elapsed = getElapsedSeconds();
+		return elapsed > 0 ? getBytesWritten() / elapsed : 0d;
+	}
+
+	public long getGcCount() {
+		return (endNanos == 0 ? gcCount() : gcCountEnd) - gcCountStart;
+	}
+
+	public long getGcTimeMillis() {
+		return (endNanos == 0 ? gcTimeMillis() : gcTimeEnd) - gcTimeStart;
+	}
+
+	/**
+	 * @return the number of bytes allocated by the workers or -1 if the JVM does not support measuring allocations
+	 */
+	public long getAllocatedBytes() {
+		if (!ALLOCATION_SUPPORTED) {
+			return -1;
+		}
+		long allocated = 0;
+		for (Recorder recorder : recorders) {
+			allocated += recorder.allocated.get();
+		}
+		return allocated;
+	}
+
+	public String[] getStageLatencies() {
+		final Stage[] stages = Stage.values();
+		final String[] summaries = new String[stages.length];
+		for (int i = 0; i < stages.length; i++) {
+			final LatencyHistogram latencies = getLatencies(stages[i]);
+			summaries[i] = String.format(Locale.ENGLISH, "%s: count=%d mean=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+					stages[i].getKey(), latencies.getCount(), latencies.getMean() / 1000d,
+					latencies.getValueAtPercentile(50) / 1000d, latencies.getValueAtPercentile(99) / 1000d,
+					latencies.getMax() / 1000d);
+		}
+		return summaries;
+	}
+
+	/**
+	 * @return the combined latencies of all workers for a stage
+	 */
+	LatencyHistogram getLatencies(final Stage stage) {
+		final LatencyHistogram latencies = new LatencyHistogram();
+		for (Recorder recorder : recorders) {
+			latencies.add(recorder.latencies[stage.ordinal()]);
+		}
+		return latencies;
+	}
+
+	/**
+	 * @return a one line summary of the current rates and the estimated time until the run is finished
+	 */
+	String getStatus() {
+		final double objectsPerSecond = getObjectsPerSecond();
+		final long remaining = objectsTotal - getObjectsGenerated();
+		final String eta;
+		if (objectsTotal < 0) {
+			// the number of objects is unknown
+			eta = "--:--:--";
+		} else if (remaining <= 0) {
+			eta = formatDuration(0);
+		} else if (objectsPerSecond > 0) {
+			eta = formatDuration((long) (remaining / objectsPerSecond));
+		} else {
+			eta = "--:--:--";
+		}
+		return String.format(Locale.ENGLISH, "%.0f objects/s  %.1f MB/s  ETA %s", objectsPerSecond,
+				getBytesPerSecond() / (1024d * 1024d), eta);
+	}
+
+	public String getReport() {
+		final StringBuilder json = new StringBuilder("{\n");
+		json.append("  \"generator\": \"").append(generator.replace("\\", "\\\\").replace("\"", "\\\"")).append("\",\n");
+		json.append("  \"objects\": ").append(getObjectsGenerated()).append(",\n");
+		json.append("  \"bytes\": ").append(getBytesWritten()).append(",\n");
+		json.append("  \"elapsedSeconds\": ").append(format(getElapsedSeconds())).append(",\n");
+		json.append("  \"objectsPerSecond\": ").append(format(getObjectsPerSecond())).append(",\n");
+		json.append("  \"bytesPerSecond\": ").append(format(getBytesPerSecond())).append(",\n");
+		json.append("  \"gcCount\": ").append(getGcCount()).append(",\n");
+		json.append("  \"gcTimeMillis\": ").append(getGcTimeMillis()).append(",\n");
+		json.append("  \"allocatedBytes\": ").append(getAllocatedBytes()).append(",\n");
+		json.append("  \"stages\": {");
+		final Stage[] stages = Stage.values();
+		for (int i = 0; i < stages.length; i++) {
+			final LatencyHistogram latencies = getLatencies(stages[i]);
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    \"").append(stages[i].getKey()).append("\": {");
+			json.append("\"count\": ").append(latencies.getCount());
+			json.append(", \"meanMicros\": ").append(format(latencies.getMean() / 1000d));
+			json.append(", \"p50Micros\": ").append(format(latencies.getValueAtPercentile(50) / 1000d));
+			json.append(", \"p90Micros\": ").append(format(latencies.getValueAtPercentile(90) / 1000d));
+			json.append(", \"p99Micros\": ").append(format(latencies.getValueAtPercentile(99) / 1000d));
+			json.append(", \"p999Micros\": ").append(format(latencies.getValueAtPercentile(99.9) / 1000d));
+			json.append(", \"maxMicros\": ").append(format(latencies.getMax() / 1000d));
+			json.append("}");
+		}
+		json.append("\n  }\n}\n");
+		return json.toString();
+	}
+
+	/**
+	 * Write the JSON report of this run
+	 *
+	 * @param file
+	 *            the file to write to
+	 * @throws IOException
+	 */
+	void writeReport(final File file) throws IOException {
+		Writer out = null;
+		try {
+			out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+			out.write(getReport());
+		} finally {
+			IOUtils.closeQuietly(out);
+		}
+	}
+
+	private static String format(final double value) {
+		return String.format(Locale.ENGLISH, "%.3f", value);
+	}
+
+	static String formatDuration(final long seconds) {
+		return String.format("%02d:%02d:%02d", seconds / 3600, (seconds / 60) % 60, seconds % 60);
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcTimeMillis() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+
+	private static boolean isAllocationSupported() {
+		try {
+			final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+			return threads instanceof com.sun.management.ThreadMXBean
+					&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()
+					&& ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemoryEnabled();
+		} catch (LinkageError e) {
+			// not a HotSpot based JVM
+			return false;
+		}
+	}
+
+	private static long currentThreadAllocatedBytes() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread
+				.currentThread().getId());
+	}
+
+	/**
+	 * The metrics of a single worker. The worker's thread and the tasks it submits record, any thread may read
+	 */
+	static final class Recorder {
+		private final LatencyHistogram[] latencies = new LatencyHistogram[Stage.values().length];
+		private final AtomicLong objects = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicLong allocated = new AtomicLong();
+		private long allocationStart;
+		private long allocatedBefore;
+
+		private Recorder() {
+			for (int i = 0; i < latencies.length; i++) {
+				latencies[i] = new LatencyHistogram();
+			}
+		}
+
+		/**
+		 * Start measuring the allocations of the calling thread. A recorder which is passed on between threads is
+		 * started again by every thread and adds the allocations of all of them
+		 */
+		void start() {
+			if (ALLOCATION_SUPPORTED) {
+				allocatedBefore = allocated.get();
+				allocationStart = currentThreadAllocatedBytes();
+			}
+		}
+
+		void record(final Stage stage, final long nanos) {
+			latencies[stage.ordinal()].record(nanos);
+		}
+
+		void addBytes(final long numBytes) {
+			bytes.addAndGet(numBytes);
+		}
+
+		/**
+		 * Count a completed object and update the allocations of the calling thread
+		 */
+		void objectDone() {
+			objects.incrementAndGet();
+			updateAllocated();
+		}
+
+		/**
+		 * Update the allocations of the calling thread, which has to be the thread which started the recorder
+		 */
+		void updateAllocated() {
+			if (ALLOCATION_SUPPORTED) {
+				allocated.set(allocatedBefore + currentThreadAllocatedBytes() - allocationStart);
+			}
+		}
+	}
+}
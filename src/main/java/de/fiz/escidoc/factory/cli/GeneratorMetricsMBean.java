@@ -0,0 +1,30 @@
+package de.fiz.escidoc.factory.cli;
+
+/**
+ * JMX view of the {@link GeneratorMetrics} of a running generator. Latencies are given in microseconds
+ */
+public interface GeneratorMetricsMBean {
+	String getGenerator();
+
+	long getObjectsGenerated();
+
+	long getObjectsTotal();
+
+	long getBytesWritten();
+
+	double getElapsedSeconds();
+
+	double getObjectsPerSecond();
+
+	double getBytesPerSecond();
+
+	long getGcCount();
+
+	long getGcTimeMillis();
+
+	long getAllocatedBytes();
+
+	String[] getStageLatencies();
+
+	String getReport();
+}
@@ -0,0 +1,131 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A bounded pool of worker threads shared by generators running at the same time. The workers run in slices of
+ * {@link #SLICE_SIZE} objects and requeue themselves after every slice, so the generators take turns on the threads
+ * instead of the first generator occupying all of them until it is done. The pool tracks the metrics of its generators
+ * to print their combined progress
+ */
+final class GeneratorPool {
+	static final int SLICE_SIZE = 64;
+
+	private final ExecutorService executor;
+	private final List<GeneratorMetrics> metrics = new CopyOnWriteArrayList<GeneratorMetrics>();
+	private final long startNanos = System.nanoTime();
+
+	/**
+	 * A task which is run in slices
+	 */
+	interface Task {
+		/**
+		 * Run the next slice of the task
+		 *
+		 * @param maxObjects
+		 *            the maximum number of objects to create in this slice
+		 * @return true if the task is done
+		 */
+		boolean runSlice(int maxObjects) throws Exception;
+	}
+
+	/**
+	 * A generator which can run its workers on a shared pool
+	 */
+	interface Member {
+		/**
+		 * @param pool
+		 *            the pool to run the workers on or null to run them on threads of the generator's own
+		 */
+		void setPool(GeneratorPool pool);
+	}
+
+	GeneratorPool(final int numThreads) {
+		this.executor = Executors.newFixedThreadPool(numThreads);
+	}
+
+	/**
+	 * Run a task slice by slice until it is done
+	 *
+	 * @return the future of the whole task, cancelling it stops the task after the current slice
+	 */
+	Future<Void> submit(final Task task) {
+		final SettableFuture<Void> future = new SettableFuture<Void>();
+		executor.execute(new Runnable() {
+			public void run() {
+				if (future.isDone()) {
+					return;
+				}
+				try {
+					if (task.runSlice(SLICE_SIZE)) {
+						future.set(null);
+					} else {
+						// continue behind the slices of the other tasks
+						executor.execute(this);
+					}
+				} catch (Throwable t) {
+					future.setException(t);
+				}
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Add the metrics of a run to the combined progress
+	 */
+	void register(final GeneratorMetrics run) {
+		metrics.add(run);
+	}
+
+	/**
+	 * Print the combined progress of the runs registered so far
+	 */
+	void printProgress(final boolean lineBreak) {
+		long done = 0;
+		long total = 0;
+		long bytes = 0;
+		boolean unknownTotal = false;
+		final StringBuilder runs = new StringBuilder();
+		for (GeneratorMetrics run : metrics) {
+			done += run.getObjectsGenerated();
+			bytes += run.getBytesWritten();
+			if (run.getObjectsTotal() < 0) {
+				unknownTotal = true;
+				runs.append(run.getGenerator()).append(' ').append(run.getObjectsGenerated()).append("  ");
+			} else {
+				total += run.getObjectsTotal();
+				runs.append(run.getGenerator()).append(' ').append(run.getObjectsGenerated()).append('/').append(
+						run.getObjectsTotal()).append("  ");
+			}
+		}
+		final double elapsed = (System.nanoTime() - startNanos) / 1e9d;
+		final double objectsPerSecond = elapsed > 0 ? done / elapsed : 0d;
+		String eta = "--:--:--";
+		if (!unknownTotal && done >= total) {
+			eta = GeneratorMetrics.formatDuration(0);
+		} else if (!unknownTotal && objectsPerSecond > 0) {
+			eta = GeneratorMetrics.formatDuration((long) ((total - done) / objectsPerSecond));
+		}
+		final String status = runs.append(String.format(Locale.ENGLISH, "%.0f objects/s  %.1f MB/s  ETA %s",
+				objectsPerSecond, elapsed > 0 ? bytes / elapsed / (1024d * 1024d) : 0d, eta)).toString();
+		if (unknownTotal) {
+			ProgressBar.printProgressCount(done, lineBreak, status);
+		} else {
+			ProgressBar.printProgressBar(lineBreak ? 100 : total == 0 ? 0 : (int) (100d * done / total), lineBreak,
+					status);
+		}
+	}
+
+	/**
+	 * Stop the threads, slices which are running are finished first
+	 */
+	void shutdown() {
+		executor.shutdown();
+	}
+}
@@ -0,0 +1,34 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.File;
+
+/**
+ * Receives the objects of a {@link Generator} run as they are completed, i.e. after the object's XML and all of its
+ * files have been written and its entry has been handed to the testplan writer. Objects are completed in no particular
+ * order, but a generator calls its sink by one thread at a time, so implementations need not be thread safe as long
+ * as they are not shared by generators running at the same time, which is done by a synchronizing sink wrapping the
+ * shared one. Objects completed by an interrupted run which is resumed are not passed to the sink again. A failure of
+ * the sink aborts the run
+ */
+public interface GeneratorSink {
+	/**
+	 * A sink ignoring all objects
+	 */
+	GeneratorSink NONE = new GeneratorSink() {
+		public void generated(final int index, final String name, final File file) {
+		}
+	};
+
+	/**
+	 * Called for every generated object
+	 *
+	 * @param index
+	 *            the index of the object
+	 * @param name
+	 *            the name of the object's XML file in the target
+	 * @param file
+	 *            the location of the object's XML file or null if the file has been streamed into an archive
+	 * @throws Exception
+	 */
+	void generated(int index, String name, File file) throws Exception;
+}
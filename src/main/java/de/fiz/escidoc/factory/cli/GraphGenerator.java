@@ -0,0 +1,170 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import de.escidoc.core.resources.common.reference.ItemRef;
+import de.escidoc.core.resources.common.reference.Reference;
+import de.escidoc.core.resources.om.item.StorageType;
+import de.fiz.escidoc.factory.FastRandom;
+
+/**
+ * Generates a linked graph of objects in one run: organizational units, contexts referencing those units, content
+ * models, items spread over the contexts and content models and content relations between the items. The objects
+ * reference each other by the placeholders of a {@link GraphIndex}, every type is generated by its usual generator
+ * into a result file of its own and the types are generated in the order in which they have to be ingested. The edges
+ * are derived from the seed, so sharded and resumed runs of the same graph have to be seeded
+ */
+public class GraphGenerator extends Questionary implements Generator, GeneratorPool.Member {
+	static final String PROPERTY_NUM_UNITS = "generator.graph.ou.num";
+	static final String PROPERTY_NUM_CONTEXTS = "generator.graph.context.num";
+	static final String PROPERTY_NUM_CONTENTMODELS = "generator.graph.contentmodel.num";
+	static final String PROPERTY_NUM_ITEMS = "generator.graph.item.num";
+	static final String PROPERTY_NUM_RELATIONS = "generator.graph.relation.num";
+	static final String PROPERTY_ITEM_SIZE = "generator.graph.item.size";
+	static final String PROPERTY_ITEM_COMPONENTS = "generator.graph.item.components";
+	static final String PROPERTY_RESULT_PATH = "generator.graph.result.path";
+
+	private final Properties properties;
+	private GeneratorPool pool;
+
+	GraphGenerator(final Properties properties) {
+		super(new BufferedReader(new InputStreamReader(System.in)), System.out);
+		this.properties = properties;
+	}
+
+	public void setPool(final GeneratorPool pool) {
+		this.pool = pool;
+	}
+
+	public void generate(final OutputTarget target, final GeneratorSink sink) throws Exception {
+		final Long seed = CommandlineInterface.getSeed(properties);
+		if (seed == null
+				&& (Shard.fromProperties(properties).isSplit() || Boolean.parseBoolean(properties
+						.getProperty(CommandlineInterface.PROPERTY_CHECKPOINT)))) {
+			throw new IOException("The edges of a sharded or resumable graph have to be derived from a seed");
+		}
+		final GraphIndex index = new GraphIndex(getCount(PROPERTY_NUM_UNITS), getCount(PROPERTY_NUM_CONTEXTS),
+				getCount(PROPERTY_NUM_CONTENTMODELS), getCount(PROPERTY_NUM_ITEMS), getCount(PROPERTY_NUM_RELATIONS),
+				seed != null ? FastRandom.derive(seed, "graph", 0) : new FastRandom().nextLong());
+		System.out.println(":: the edges of the graph take " + index.getSizeInBytes() / 1024 + " KB");
+		// the generators are created in the order of the node types
+		final List<Generator> generators = createGenerators(index);
+		for (final GraphIndex.NodeType type : GraphIndex.NodeType.values()) {
+			System.out.println(":: generating " + index.getCount(type) + " nodes of type " + type);
+			final Generator generator = generators.get(type.ordinal());
+			((GeneratorPool.Member) generator).setPool(pool);
+			generator.generate(target, sink);
+		}
+	}
+
+	private List<Generator> createGenerators(final GraphIndex index) {
+		final String resultPath = properties.getProperty(PROPERTY_RESULT_PATH);
+		final Properties units = copyProperties();
+		units.setProperty(OrganizationalUnitGenerator.PROPERTY_NUMFILES, String.valueOf(index
+				.getCount(GraphIndex.NodeType.ORGANIZATIONAL_UNIT)));
+		units.setProperty(OrganizationalUnitGenerator.PROPERTY_TARGET_DIRECTORY, properties
+				.getProperty(CommandlineInterface.PROPERTY_TARGET_DIRECTORY));
+		units.setProperty(OrganizationalUnitGenerator.PROPERTY_RESULT_PATH, resultPath + "-ou.csv");
+		final Properties contexts = copyProperties();
+		contexts.setProperty(ContextGenerator.PROPERTY_NUMFILES, String.valueOf(index
+				.getCount(GraphIndex.NodeType.CONTEXT)));
+		contexts.setProperty(ContextGenerator.PROPERTY_RESULT_PATH, resultPath + "-ctx.csv");
+		final Properties models = copyProperties();
+		models.setProperty(ContentModelGenerator.PROPERTY_NUMFILES, String.valueOf(index
+				.getCount(GraphIndex.NodeType.CONTENT_MODEL)));
+		models.setProperty(ContentModelGenerator.PROPERTY_RESULT_PATH, resultPath + "-cm.csv");
+		final Properties items = copyProperties();
+		items.setProperty(ItemGenerator.PROPERTY_RANDOM_DATA, "true");
+		items.setProperty(ItemGenerator.PROPERTY_RANDOM_NUM_FILES, String.valueOf(index
+				.getCount(GraphIndex.NodeType.ITEM)));
+		items.setProperty(ItemGenerator.PROPERTY_RANDOM_SIZE_FILES, properties.getProperty(PROPERTY_ITEM_SIZE, "1024"));
+		items.setProperty(ItemGenerator.PROPERTY_RANDOM_NUM_COMPONENTS, properties.getProperty(
+				PROPERTY_ITEM_COMPONENTS, "1"));
+		items.setProperty(ItemGenerator.PROPERTY_STORAGE_TYPE, properties.getProperty(
+				ItemGenerator.PROPERTY_STORAGE_TYPE, StorageType.INTERNAL_MANAGED.toString()));
+		items.setProperty(ItemGenerator.PROPERTY_RESULT_PATH, resultPath + "-i.csv");
+		final Properties relations = copyProperties();
+		relations.setProperty(ContentRelationGenerator.PROPERTY_NUMFILES, String.valueOf(index
+				.getCount(GraphIndex.NodeType.CONTENT_RELATION)));
+		relations.setProperty(ContentRelationGenerator.PROPERTY_RESULT_PATH, resultPath + "-cr.csv");
+
+		// the references are placeholders which vary between the objects, so they are declared as slots
+		return Arrays.<Generator> asList(new OrganizationalUnitGenerator(units), new ContextGenerator(contexts) {
+			@Override
+			String getOrganizationalUnitId(final int i, final Worker worker) {
+				return worker.slot(GraphIndex.NodeType.ORGANIZATIONAL_UNIT.placeholder(index.getOrganizationalUnit(i)));
+			}
+		}, new ContentModelGenerator(models), new ItemGenerator(items) {
+			@Override
+			String getContextId(final int i, final Worker worker) {
+				return worker.slot(GraphIndex.NodeType.CONTEXT.placeholder(index.getContext(i)));
+			}
+
+			@Override
+			String getContentModelId(final int i, final Worker worker) {
+				return worker.slot(GraphIndex.NodeType.CONTENT_MODEL.placeholder(index.getContentModel(i)));
+			}
+		}, new ContentRelationGenerator(relations) {
+			@Override
+			Reference createSubject(final int i, final Worker worker) {
+				return new ItemRef(worker.slot(GraphIndex.NodeType.ITEM.placeholder(index.getSubject(i))));
+			}
+
+			@Override
+			Reference createObjectReference(final int i, final Worker worker) {
+				return new ItemRef(worker.slot(GraphIndex.NodeType.ITEM.placeholder(index.getObject(i))));
+			}
+		});
+	}
+
+	private Properties copyProperties() {
+		final Properties copy = new Properties();
+		copy.putAll(properties);
+		return copy;
+	}
+
+	private int getCount(final String property) {
+		return Integer.parseInt(properties.getProperty(property, "0").trim());
+	}
+
+	public void interactive() {
+		try {
+			properties.setProperty(PROPERTY_NUM_UNITS, String.valueOf(poseQuestion(Integer.class, 10,
+					"How many organizational units should the graph have [default=10] ? ")));
+			properties.setProperty(PROPERTY_NUM_CONTEXTS, String.valueOf(poseQuestion(Integer.class, 10,
+					"How many contexts should the graph have [default=10] ? ")));
+			properties.setProperty(PROPERTY_NUM_CONTENTMODELS, String.valueOf(poseQuestion(Integer.class, 10,
+					"How many content models should the graph have [default=10] ? ")));
+			properties.setProperty(PROPERTY_NUM_ITEMS, String.valueOf(poseQuestion(Integer.class, 1000,
+					"How many items should the graph have [default=1000] ? ")));
+			properties.setProperty(PROPERTY_NUM_RELATIONS, String.valueOf(poseQuestion(Integer.class, 1000,
+					"How many content relations between the items should the graph have [default=1000] ? ")));
+			String size;
+			do {
+				size = poseQuestion(String.class, "1k",
+						"What size should the content of the items have? Enter a size in bytes or with a unit like 512k or 10M [default=1k]");
+			} while (!isSize(size));
+			properties.setProperty(PROPERTY_ITEM_SIZE, size);
+			String components;
+			do {
+				components = poseQuestion(String.class, "1",
+						"How many components should an item have? Enter a number or a distribution like uniform:1,10 or lognormal:3,1 [default=1]");
+			} while (!isDistribution(components));
+			properties.setProperty(PROPERTY_ITEM_COMPONENTS, components);
+			String resultPath;
+			do {
+				resultPath = poseQuestion(String.class, properties.getProperty(CommandlineInterface.PROPERTY_TARGET_DIRECTORY)
+						+ "/testdaten-graph", "What's the common prefix of the result files [default="
+						+ properties.getProperty(CommandlineInterface.PROPERTY_TARGET_DIRECTORY) + "/testdaten-graph] ?");
+			} while (resultPath.length() == 0);
+			properties.setProperty(PROPERTY_RESULT_PATH, resultPath);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,167 @@
+package de.fiz.escidoc.factory.cli;
+
+import de.fiz.escidoc.factory.FastRandom;
+
+/**
+ * The edges of a generated object graph. Nodes are identified by their type and their index within the type and are
+ * referenced in the XML by placeholders like <code>${context:17}</code>, which are replaced by the real IDs when the
+ * objects are ingested in dependency order. Every edge is a value in a {@link PackedIntArray}, so no object is held per
+ * node: a graph of ten million items spread over a thousand contexts and models takes about 25 MB plus 6 bytes per
+ * relation
+ */
+final class GraphIndex {
+	/**
+	 * The types of the nodes in the order in which they have to be created
+	 */
+	enum NodeType {
+		ORGANIZATIONAL_UNIT("ou", "/oum/organizational-unit"), CONTEXT("context", "/ir/context"), CONTENT_MODEL(
+				"contentmodel", "/cmm/content-model"), ITEM("item", "/ir/item"), CONTENT_RELATION("contentrelation",
+				"/ir/content-relation");
+
+		private final String token;
+		private final String createPath;
+
+		private NodeType(final String token, final String createPath) {
+			this.token = token;
+			this.createPath = createPath;
+		}
+
+		/**
+		 * @return the path of the repository's endpoint creating objects of this type, relative to the repository's URL
+		 */
+		String getCreatePath() {
+			return createPath;
+		}
+
+		/**
+		 * @return the placeholder of the node with the given index
+		 */
+		String placeholder(final int index) {
+			return "${" + token + ":" + index + "}";
+		}
+
+		/**
+		 * @return the type with the given placeholder token or null if there is none
+		 */
+		static NodeType fromToken(final String token) {
+			for (NodeType type : values()) {
+				if (type.token.equals(token)) {
+					return type;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * @return the type of the objects whose files are named like the given file or null if there is none
+		 */
+		static NodeType fromFileName(final String name) {
+			for (NodeType type : values()) {
+				if (name.startsWith(type.token + "-")) {
+					return type;
+				}
+			}
+			return null;
+		}
+	}
+
+	private final int[] counts = new int[NodeType.values().length];
+	private final PackedIntArray contextUnits;
+	private final PackedIntArray itemContexts;
+	private final PackedIntArray itemContentModels;
+	private final PackedIntArray relationSubjects;
+	private final PackedIntArray relationObjects;
+
+	/**
+	 * Spread the nodes uniformly at random over the nodes they reference
+	 *
+	 * @param seed
+	 *            the seed of the edges, runs with the same seed and counts create the same graph
+	 */
+	GraphIndex(final int numUnits, final int numContexts, final int numContentModels, final int numItems,
+			final int numRelations, final long seed) {
+		checkCount(NodeType.CONTEXT, numContexts, NodeType.ORGANIZATIONAL_UNIT, numUnits);
+		checkCount(NodeType.ITEM, numItems, NodeType.CONTEXT, numContexts);
+		checkCount(NodeType.ITEM, numItems, NodeType.CONTENT_MODEL, numContentModels);
+		checkCount(NodeType.CONTENT_RELATION, numRelations, NodeType.ITEM, numItems);
+		counts[NodeType.ORGANIZATIONAL_UNIT.ordinal()] = numUnits;
+		counts[NodeType.CONTEXT.ordinal()] = numContexts;
+		counts[NodeType.CONTENT_MODEL.ordinal()] = numContentModels;
+		counts[NodeType.ITEM.ordinal()] = numItems;
+		counts[NodeType.CONTENT_RELATION.ordinal()] = numRelations;
+		final FastRandom random = new FastRandom(seed);
+		contextUnits = new PackedIntArray(numContexts, Math.max(1, numUnits));
+		for (int i = 0; i < numContexts; i++) {
+			contextUnits.set(i, random.nextInt(numUnits));
+		}
+		itemContexts = new PackedIntArray(numItems, Math.max(1, numContexts));
+		itemContentModels = new PackedIntArray(numItems, Math.max(1, numContentModels));
+		for (int i = 0; i < numItems; i++) {
+			itemContexts.set(i, random.nextInt(numContexts));
+			itemContentModels.set(i, random.nextInt(numContentModels));
+		}
+		relationSubjects = new PackedIntArray(numRelations, Math.max(1, numItems));
+		relationObjects = new PackedIntArray(numRelations, Math.max(1, numItems));
+		for (int i = 0; i < numRelations; i++) {
+			final int subject = random.nextInt(numItems);
+			int object = subject;
+			if (numItems > 1) {
+				// relate an item to another item, the offset is never zero
+				object = (subject + 1 + random.nextInt(numItems - 1)) % numItems;
+			}
+			relationSubjects.set(i, subject);
+			relationObjects.set(i, object);
+		}
+	}
+
+	private static void checkCount(final NodeType type, final int count, final NodeType referenced,
+			final int numReferenced) {
+		if (count < 0 || numReferenced < 0) {
+			throw new IllegalArgumentException("The number of nodes must not be negative");
+		}
+		if (count > 0 && numReferenced == 0) {
+			throw new IllegalArgumentException("Nodes of type " + type + " require nodes of type " + referenced);
+		}
+	}
+
+	int getCount(final NodeType type) {
+		return counts[type.ordinal()];
+	}
+
+	/**
+	 * @return the index of the organizational unit of a context
+	 */
+	int getOrganizationalUnit(final int context) {
+		return contextUnits.get(context);
+	}
+
+	int getContext(final int item) {
+		return itemContexts.get(item);
+	}
+
+	int getContentModel(final int item) {
+		return itemContentModels.get(item);
+	}
+
+	/**
+	 * @return the index of the item which is the subject of a relation
+	 */
+	int getSubject(final int relation) {
+		return relationSubjects.get(relation);
+	}
+
+	/**
+	 * @return the index of the item which is the object of a relation
+	 */
+	int getObject(final int relation) {
+		return relationObjects.get(relation);
+	}
+
+	/**
+	 * @return the number of bytes occupied by the edges
+	 */
+	long getSizeInBytes() {
+		return contextUnits.getSizeInBytes() + itemContexts.getSizeInBytes() + itemContentModels.getSizeInBytes()
+				+ relationSubjects.getSizeInBytes() + relationObjects.getSizeInBytes();
+	}
+}
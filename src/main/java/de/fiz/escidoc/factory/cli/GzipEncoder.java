@@ -0,0 +1,75 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses documents into gzip members as specified by RFC 1952. A member can be stored as a file of its own or
+ * concatenated with other members into one stream, which gunzip decompresses into the concatenated documents. The
+ * {@link Deflater} and the output buffer are reused for all documents, so no native memory is allocated per
+ * document. Instances are not thread safe
+ */
+final class GzipEncoder {
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+	private static final int TRAILER_LENGTH = 8;
+
+	private final Deflater deflater;
+	private final CRC32 crc = new CRC32();
+	private byte[] buffer = new byte[64 * 1024];
+
+	/**
+	 * @param level
+	 *            the deflate level
+	 */
+	GzipEncoder(final int level) {
+		this.deflater = new Deflater(level, true);
+	}
+
+	/**
+	 * Compress a document into a gzip member
+	 *
+	 * @param data
+	 *            the array containing the document
+	 * @param length
+	 *            the length of the document
+	 * @return a new buffer containing the member
+	 */
+	ByteBuffer encode(final byte[] data, final int length) {
+		deflater.reset();
+		deflater.setInput(data, 0, length);
+		deflater.finish();
+		crc.reset();
+		crc.update(data, 0, length);
+		System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+		int position = HEADER.length;
+		while (!deflater.finished()) {
+			if (position == buffer.length) {
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+			}
+			position += deflater.deflate(buffer, position, buffer.length - position);
+		}
+		if (buffer.length - position < TRAILER_LENGTH) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		position = putIntLittleEndian((int) crc.getValue(), position);
+		position = putIntLittleEndian(length, position);
+		return ByteBuffer.wrap(Arrays.copyOf(buffer, position));
+	}
+
+	private int putIntLittleEndian(final int value, final int position) {
+		buffer[position] = (byte) value;
+		buffer[position + 1] = (byte) (value >>> 8);
+		buffer[position + 2] = (byte) (value >>> 16);
+		buffer[position + 3] = (byte) (value >>> 24);
+		return position + 4;
+	}
+
+	/**
+	 * Release the native memory of the deflater
+	 */
+	void end() {
+		deflater.end();
+	}
+}
@@ -0,0 +1,102 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The IDs assigned by the repository to the ingested objects, by the objects' type and index. IDs consisting of a
+ * prefix shared by all IDs and a number without leading zeros, like <code>escidoc:1234</code>, take 8 bytes per object
+ * in chunks of longs which are allocated as the indices grow, other IDs are kept as strings. Thread safe
+ */
+final class IngestedIds {
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final long OTHER_ID = -1;
+
+	private final Object lock = new Object();
+	private final AtomicLongArray[][] chunks = new AtomicLongArray[GraphIndex.NodeType.values().length][];
+	private final ConcurrentMap<Long, String> otherIds = new ConcurrentHashMap<Long, String>();
+	private volatile String prefix;
+
+	IngestedIds() {
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = new AtomicLongArray[0];
+		}
+	}
+
+	/**
+	 * Store the ID of an object
+	 */
+	void put(final GraphIndex.NodeType type, final int index, final String id) {
+		if (prefix == null) {
+			synchronized (lock) {
+				if (prefix == null) {
+					// the prefix of the first ID is expected to be shared by all IDs
+					int end = id.length();
+					while (end > 0 && Character.isDigit(id.charAt(end - 1))) {
+						end--;
+					}
+					prefix = id.substring(0, end);
+				}
+			}
+		}
+		long value = OTHER_ID;
+		final int digits = id.length() - prefix.length();
+		// a number with leading zeros would lose them, so it is kept as a string
+		if (id.startsWith(prefix) && digits > 0 && digits < 19 && isNumber(id, prefix.length())
+				&& (id.charAt(prefix.length()) != '0' || digits == 1)) {
+			value = Long.parseLong(id.substring(prefix.length())) + 1;
+		} else {
+			otherIds.put(getKey(type, index), id);
+		}
+		getChunk(type, index, true).set(index & (CHUNK_SIZE - 1), value);
+	}
+
+	/**
+	 * @return the ID of an object or null if it has not been stored
+	 */
+	String get(final GraphIndex.NodeType type, final int index) {
+		final AtomicLongArray chunk = getChunk(type, index, false);
+		final long value = chunk == null ? 0 : chunk.get(index & (CHUNK_SIZE - 1));
+		if (value == 0) {
+			return null;
+		}
+		if (value == OTHER_ID) {
+			return otherIds.get(getKey(type, index));
+		}
+		return prefix + (value - 1);
+	}
+
+	private AtomicLongArray getChunk(final GraphIndex.NodeType type, final int index, final boolean create) {
+		final int chunk = index >>> CHUNK_BITS;
+		synchronized (lock) {
+			AtomicLongArray[] typeChunks = chunks[type.ordinal()];
+			if (chunk >= typeChunks.length) {
+				if (!create) {
+					return null;
+				}
+				final AtomicLongArray[] grown = new AtomicLongArray[Math.max(chunk + 1, typeChunks.length * 2)];
+				System.arraycopy(typeChunks, 0, grown, 0, typeChunks.length);
+				chunks[type.ordinal()] = typeChunks = grown;
+			}
+			if (typeChunks[chunk] == null && create) {
+				typeChunks[chunk] = new AtomicLongArray(CHUNK_SIZE);
+			}
+			return typeChunks[chunk];
+		}
+	}
+
+	private static boolean isNumber(final String id, final int start) {
+		for (int i = start; i < id.length(); i++) {
+			if (!Character.isDigit(id.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static Long getKey(final GraphIndex.NodeType type, final int index) {
+		return ((long) type.ordinal() << 32) | index;
+	}
+}
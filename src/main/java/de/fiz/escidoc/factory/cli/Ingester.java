@@ -0,0 +1,390 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+
+import de.escidoc.core.client.Authentication;
+
+/**
+ * Creates the generated objects in an eSciDoc repository while they are generated. The ingester is the
+ * {@link GeneratorSink} of the runs: the XML files of the completed objects are collected into batches, which are sent
+ * by a bounded pool of request threads to the repository's REST create endpoints, one request per object over the
+ * thread's keep-alive connection. Placeholder IDs of a generated graph are replaced by the IDs the repository assigned
+ * to the referenced objects, which have always been handed to the ingester before the objects referencing them. The
+ * latency of every request is recorded per type of object
+ */
+final class Ingester implements GeneratorSink {
+	static final int DEFAULT_NUM_THREADS = 8;
+	static final int DEFAULT_BATCH_SIZE = 16;
+	private static final long DEFAULT_RESOLVE_TIMEOUT_MILLIS = 60000;
+	private static final int BATCHES_PER_THREAD = 4;
+
+	private final String repository;
+	private final String handle;
+	private final int batchSize;
+	private final IngestedIds ids = new IngestedIds();
+	private final LatencyHistogram[] latencies = new LatencyHistogram[GraphIndex.NodeType.values().length];
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final PipelineStage<List<Request>> stage;
+	private final long startNanos = System.nanoTime();
+	private List<Request> batch;
+	private volatile boolean failed;
+	private volatile long resolveTimeoutMillis = DEFAULT_RESOLVE_TIMEOUT_MILLIS;
+
+	/**
+	 * The object of a request
+	 */
+	private static final class Request {
+		private final GraphIndex.NodeType type;
+		private final int index;
+		private final String name;
+		private final File file;
+
+		private Request(final GraphIndex.NodeType type, final int index, final String name, final File file) {
+			this.type = type;
+			this.index = index;
+			this.name = name;
+			this.file = file;
+		}
+	}
+
+	/**
+	 * @param repository
+	 *            the URL of the repository
+	 * @param handle
+	 *            the handle authenticating the requests or null
+	 * @param numThreads
+	 *            the maximum number of concurrent requests
+	 * @param batchSize
+	 *            the number of objects handed to a request thread at once
+	 */
+	Ingester(final URL repository, final String handle, final int numThreads, final int batchSize) {
+		final String url = repository.toString();
+		this.repository = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+		this.handle = handle;
+		this.batchSize = batchSize;
+		this.batch = new ArrayList<Request>(batchSize);
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+		}
+		this.stage = new PipelineStage<List<Request>>(numThreads, numThreads * BATCHES_PER_THREAD) {
+			@Override
+			Handler<List<Request>> createHandler() {
+				return new RequestHandler();
+			}
+		};
+		stage.start();
+	}
+
+	/**
+	 * Create an ingester from the settings of {@link CommandlineInterface#PROPERTY_INGEST_URL} and the related
+	 * properties. A handle is requested by the eSciDoc client if a user is set
+	 */
+	static Ingester fromProperties(final Properties properties, final URL repository) throws Exception {
+		String handle = properties.getProperty(CommandlineInterface.PROPERTY_INGEST_HANDLE);
+		final String user = properties.getProperty(CommandlineInterface.PROPERTY_INGEST_USER);
+		if (handle == null && user != null) {
+			handle = new Authentication(repository, user, properties.getProperty(
+					CommandlineInterface.PROPERTY_INGEST_PASSWORD, "")).getHandle();
+		}
+		return new Ingester(repository, handle, Integer.parseInt(properties.getProperty(
+				CommandlineInterface.PROPERTY_INGEST_THREADS, String.valueOf(DEFAULT_NUM_THREADS)).trim()), Integer
+				.parseInt(properties.getProperty(CommandlineInterface.PROPERTY_INGEST_BATCH,
+						String.valueOf(DEFAULT_BATCH_SIZE)).trim()));
+	}
+
+	public synchronized void generated(final int index, final String name, final File file) throws Exception {
+		final GraphIndex.NodeType type = GraphIndex.NodeType.fromFileName(name);
+		if (type == null) {
+			throw new IOException("Unable to ingest " + name + ", the type of the object is unknown");
+		}
+		if (file == null) {
+			throw new IOException("Unable to ingest " + name + ", the file has been streamed into an archive");
+		}
+		batch.add(new Request(type, index, name, file));
+		if (batch.size() >= batchSize) {
+			stage.put(batch);
+			batch = new ArrayList<Request>(batchSize);
+		}
+	}
+
+	/**
+	 * Send the remaining objects and wait for all requests to complete
+	 *
+	 * @throws Exception
+	 *             the first failed request
+	 */
+	synchronized void close() throws Exception {
+		try {
+			if (!batch.isEmpty()) {
+				stage.put(batch);
+				batch = new ArrayList<Request>(batchSize);
+			}
+			stage.close();
+			while (!stage.awaitTermination(250, TimeUnit.MILLISECONDS)) {
+				checkRequests();
+			}
+			checkRequests();
+		} finally {
+			stage.abort();
+		}
+	}
+
+	/**
+	 * @param millis
+	 *            the time to wait for the ingest of an object referenced by a placeholder
+	 */
+	void setResolveTimeout(final long millis) {
+		this.resolveTimeoutMillis = millis;
+	}
+
+	/**
+	 * Stop sending requests, requests which are being sent are interrupted
+	 */
+	void abort() {
+		stage.abort();
+	}
+
+	private void checkRequests() throws Exception {
+		for (Future<?> thread : stage.getThreads()) {
+			if (thread.isDone()) {
+				AbstractGenerator.getResult(thread);
+			}
+		}
+	}
+
+	/**
+	 * @return the ID assigned to an ingested object or null if it has not been ingested
+	 */
+	String getId(final GraphIndex.NodeType type, final int index) {
+		return ids.get(type, index);
+	}
+
+	/**
+	 * @return the latencies of the requests creating objects of the given type
+	 */
+	LatencyHistogram getLatencies(final GraphIndex.NodeType type) {
+		return latencies[type.ordinal()];
+	}
+
+	/**
+	 * @return a line per type of ingested objects with the number of requests and their latencies in milliseconds
+	 */
+	String getReport() {
+		final double elapsed = (System.nanoTime() - startNanos) / 1e9d;
+		final StringBuilder report = new StringBuilder();
+		long total = 0;
+		for (GraphIndex.NodeType type : GraphIndex.NodeType.values()) {
+			final LatencyHistogram latency = latencies[type.ordinal()];
+			if (latency.getCount() == 0) {
+				continue;
+			}
+			total += latency.getCount();
+			report.append(String.format(Locale.ENGLISH,
+					"%-18s %8d requests  mean %.2f ms  p50 %.2f ms  p90 %.2f ms  p99 %.2f ms  max %.2f ms%n", type,
+					latency.getCount(), latency.getMean() / 1e6d, latency.getValueAtPercentile(50) / 1e6d, latency
+							.getValueAtPercentile(90) / 1e6d, latency.getValueAtPercentile(99) / 1e6d, latency
+							.getMax() / 1e6d));
+		}
+		report.append(String.format(Locale.ENGLISH, "%d objects ingested in %.1f s, %.0f requests/s, %.1f MB/s%n",
+				total, elapsed, elapsed > 0 ? total / elapsed : 0d, elapsed > 0 ? bytesSent.get() / elapsed
+						/ (1024d * 1024d) : 0d));
+		return report.toString();
+	}
+
+	/**
+	 * Replace the placeholders of a document by the IDs of the ingested objects, waiting for objects which are still
+	 * being ingested by other threads
+	 */
+	private byte[] resolve(final byte[] xml) throws Exception {
+		ByteArrayOutputStream resolved = null;
+		int copied = 0;
+		for (int i = 0; i < xml.length - 1; i++) {
+			if (xml[i] != '$' || xml[i + 1] != '{') {
+				continue;
+			}
+			int colon = i + 2;
+			while (colon < xml.length && xml[colon] != ':' && xml[colon] != '}') {
+				colon++;
+			}
+			int end = colon + 1;
+			while (end < xml.length && xml[end] >= '0' && xml[end] <= '9') {
+				end++;
+			}
+			if (colon >= xml.length || xml[colon] != ':' || end == colon + 1 || end >= xml.length || xml[end] != '}') {
+				continue;
+			}
+			final GraphIndex.NodeType type = GraphIndex.NodeType.fromToken(new String(xml, i + 2, colon - i - 2,
+					StandardCharsets.US_ASCII));
+			if (type == null) {
+				continue;
+			}
+			final String id = await(type, Integer.parseInt(new String(xml, colon + 1, end - colon - 1,
+					StandardCharsets.US_ASCII)));
+			if (resolved == null) {
+				resolved = new ByteArrayOutputStream(xml.length + 64);
+			}
+			resolved.write(xml, copied, i - copied);
+			final byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+			resolved.write(idBytes, 0, idBytes.length);
+			copied = end + 1;
+			i = end;
+		}
+		if (resolved == null) {
+			return xml;
+		}
+		resolved.write(xml, copied, xml.length - copied);
+		return resolved.toByteArray();
+	}
+
+	private String await(final GraphIndex.NodeType type, final int index) throws Exception {
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(resolveTimeoutMillis);
+		String id;
+		while ((id = ids.get(type, index)) == null) {
+			// the referenced object has been handed to another thread, unless its ingest failed
+			if (failed || System.nanoTime() > deadline) {
+				throw new IOException("The referenced object " + type.placeholder(index) + " has not been ingested");
+			}
+			Thread.sleep(1);
+		}
+		return id;
+	}
+
+	/**
+	 * @return the ID of the object created by a request, taken from the root element of the response
+	 */
+	static String parseId(final String response) throws IOException {
+		final int root = indexOfRootElement(response);
+		final int rootEnd = root < 0 ? -1 : response.indexOf('>', root);
+		if (rootEnd > 0) {
+			final String element = response.substring(root, rootEnd);
+			for (String attribute : new String[] { " objid=\"", " xlink:href=\"" }) {
+				final int start = element.indexOf(attribute);
+				if (start >= 0) {
+					final String value = element.substring(start + attribute.length(), element.indexOf('"', start
+							+ attribute.length()));
+					return value.substring(value.lastIndexOf('/') + 1);
+				}
+			}
+		}
+		throw new IOException("The response contains no ID: "
+				+ response.substring(0, Math.min(200, response.length())));
+	}
+
+	/**
+	 * @return the position of the root element's start tag in a document or -1 if there is none
+	 */
+	static int indexOfRootElement(final String xml) {
+		int root = xml.indexOf('<');
+		while (root >= 0 && root + 1 < xml.length() && (xml.charAt(root + 1) == '?' || xml.charAt(root + 1) == '!')) {
+			root = xml.indexOf('<', root + 1);
+		}
+		return root;
+	}
+
+	/**
+	 * The status and the body of a response
+	 */
+	static final class Response {
+		private final int status;
+		private final String body;
+
+		private Response(final int status, final String body) {
+			this.status = status;
+			this.body = body;
+		}
+
+		int getStatus() {
+			return status;
+		}
+
+		String getBody() {
+			return body;
+		}
+
+		boolean isSuccessful() {
+			return status == HttpURLConnection.HTTP_OK || status == HttpURLConnection.HTTP_CREATED;
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(status);
+		}
+	}
+
+	/**
+	 * Send an object's XML to a create endpoint of a repository over the calling thread's keep-alive connection
+	 *
+	 * @param handle
+	 *            the handle authenticating the request or null
+	 */
+	static Response put(final URL url, final byte[] xml, final String handle) throws IOException {
+		final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		connection.setRequestMethod("PUT");
+		connection.setDoOutput(true);
+		connection.setFixedLengthStreamingMode(xml.length);
+		connection.setRequestProperty("Content-Type", "text/xml; charset=UTF-8");
+		if (handle != null) {
+			connection.setRequestProperty("Cookie", "escidocCookie=" + handle);
+		}
+		final OutputStream out = connection.getOutputStream();
+		out.write(xml);
+		out.close();
+		final int status = connection.getResponseCode();
+		final InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		// the body is read completely, so the connection is kept alive
+		final String body = in == null ? "" : new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+		if (in != null) {
+			in.close();
+		}
+		return new Response(status, body);
+	}
+
+	/**
+	 * Sends the requests of the batches taken by one thread
+	 */
+	private final class RequestHandler implements PipelineStage.Handler<List<Request>> {
+		public void handle(final List<Request> requests) throws Exception {
+			try {
+				for (Request request : requests) {
+					ingest(request);
+				}
+			} catch (Exception e) {
+				failed = true;
+				throw e;
+			}
+		}
+
+		private void ingest(final Request request) throws Exception {
+			final byte[] xml = resolve(Files.readAllBytes(request.file.toPath()));
+			final long start = System.nanoTime();
+			final Response response = put(new URL(repository + request.type.getCreatePath()), xml, handle);
+			latencies[request.type.ordinal()].record(System.nanoTime() - start);
+			if (!response.isSuccessful()) {
+				throw new IOException("Unable to ingest " + request.name + ", the repository answered " + response
+						+ ": " + response.getBody().substring(0, Math.min(200, response.getBody().length())));
+			}
+			ids.put(request.type, request.index, parseId(response.getBody()));
+			bytesSent.addAndGet(xml.length);
+		}
+
+		public void close() {
+		}
+	}
+}
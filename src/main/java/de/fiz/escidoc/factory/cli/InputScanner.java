@@ -0,0 +1,205 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the input files of a directory tree while they are consumed. The subtrees are traversed in parallel by a
+ * {@link ForkJoinPool} and the file names are matched against a glob compiled once, matching files are handed to the
+ * consumers through a bounded queue. Consumers can start as soon as the first file has been found and the memory
+ * needed does not depend on the size of the tree. The order in which the files are found is unspecified
+ */
+final class InputScanner implements Closeable {
+	private static final File END = new File("");
+
+	private final File root;
+	private final PathMatcher matcher;
+	private final ForkJoinPool pool;
+	private final BlockingQueue<File> queue;
+	private volatile Throwable failure;
+
+	/**
+	 * @param root
+	 *            the directory to scan
+	 * @param fileTypes
+	 *            the extensions of the files to accept, "*" accepts all files
+	 * @param parallelism
+	 *            the number of threads traversing the tree
+	 * @param capacity
+	 *            the number of found files which may wait for a consumer
+	 */
+	InputScanner(final File root, final String[] fileTypes, final int parallelism, final int capacity) {
+		this.root = root;
+		this.matcher = createMatcher(fileTypes);
+		this.pool = new ForkJoinPool(parallelism);
+		this.queue = new ArrayBlockingQueue<File>(capacity);
+	}
+
+	/**
+	 * Find all input files of a directory tree
+	 *
+	 * @return the files in an unspecified order
+	 * @throws IOException
+	 *             if the tree could not be traversed
+	 */
+	static List<File> list(final File root, final String[] fileTypes, final int parallelism) throws IOException,
+			InterruptedException {
+		final List<File> files = new ArrayList<File>();
+		final InputScanner scanner = new InputScanner(root, fileTypes, parallelism, 4096);
+		try {
+			scanner.start();
+			File file;
+			while ((file = scanner.take()) != null) {
+				files.add(file);
+			}
+		} finally {
+			scanner.close();
+		}
+		return files;
+	}
+
+	/**
+	 * @return the matcher for the file names or null if all files are accepted
+	 */
+	static PathMatcher createMatcher(final String[] fileTypes) {
+		final StringBuilder glob = new StringBuilder("glob:*.{");
+		for (int i = 0; i < fileTypes.length; i++) {
+			final String type = fileTypes[i].trim();
+			if (type.equals("*")) {
+				return null;
+			}
+			glob.append(i == 0 ? "" : ",").append(type);
+		}
+		return FileSystems.getDefault().getPathMatcher(glob.append('}').toString());
+	}
+
+	/**
+	 * Start traversing the tree in the background
+	 */
+	void start() {
+		pool.execute(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				try {
+					new DirectoryTask(root.toPath()).invoke();
+				} catch (Throwable t) {
+					failure = t;
+					for (Throwable cause = t; cause != null; cause = cause.getCause()) {
+						if (cause instanceof IOException) {
+							failure = cause;
+							break;
+						}
+					}
+				} finally {
+					try {
+						queue.put(END);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Take the next input file, waiting for the scanner if necessary
+	 *
+	 * @return the next file or null if the whole tree has been scanned
+	 * @throws IOException
+	 *             if the tree could not be traversed
+	 */
+	File take() throws IOException, InterruptedException {
+		final File file = queue.take();
+		if (file != END) {
+			return file;
+		}
+		// leave the marker for the other consumers
+		queue.put(END);
+		if (failure instanceof IOException) {
+			throw (IOException) failure;
+		} else if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure instanceof Error) {
+			throw (Error) failure;
+		}
+		return null;
+	}
+
+	public void close() {
+		pool.shutdownNow();
+	}
+
+	private final class DirectoryTask extends RecursiveAction {
+		private final Path directory;
+
+		private DirectoryTask(final Path directory) {
+			this.directory = directory;
+		}
+
+		@Override
+		protected void compute() {
+			final List<DirectoryTask> subtrees = new ArrayList<DirectoryTask>();
+			DirectoryStream<Path> entries = null;
+			try {
+				entries = Files.newDirectoryStream(directory);
+				for (Path entry : entries) {
+					final BasicFileAttributes attributes;
+					try {
+						attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+					} catch (NoSuchFileException e) {
+						// a dangling link or a file deleted since the directory has been read
+						continue;
+					}
+					if (attributes.isDirectory()) {
+						subtrees.add(new DirectoryTask(entry));
+					} else if (attributes.isRegularFile() && (matcher == null || matcher.matches(entry.getFileName()))
+							&& Files.isReadable(entry)) {
+						queue.put(entry.toFile());
+					}
+				}
+			} catch (AccessDeniedException e) {
+				// unreadable directories are skipped
+			} catch (IOException e) {
+				throw new ScanException(e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				if (entries != null) {
+					try {
+						entries.close();
+					} catch (IOException e) {
+						// the entries have been read already
+					}
+				}
+			}
+			invokeAll(subtrees);
+		}
+	}
+
+	/**
+	 * Carries an {@link IOException} out of the traversal tasks
+	 */
+	private static final class ScanException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		private ScanException(final IOException cause) {
+			super(cause);
+		}
+	}
+}
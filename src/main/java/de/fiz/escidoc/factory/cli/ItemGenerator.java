@@ -1,44 +1,58 @@
 package de.fiz.escidoc.factory.cli;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
-import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.parsers.ParserConfigurationException;
 
-import org.apache.commons.io.IOUtils;
-
-import de.escidoc.core.client.exceptions.InternalClientException;
-import de.escidoc.core.common.jibx.Marshaller;
+import de.escidoc.core.resources.common.MetadataRecord;
 import de.escidoc.core.resources.om.item.Item;
 import de.escidoc.core.resources.om.item.StorageType;
+import de.escidoc.core.resources.om.item.component.Component;
 import de.fiz.escidoc.factory.EscidocObjects;
+import de.fiz.escidoc.factory.FastRandom;
+import de.fiz.escidoc.factory.RandomContentWriter;
+import de.fiz.escidoc.factory.SizeDistribution;
+
+public class ItemGenerator extends AbstractGenerator<Item> {
+	private static final int INPUT_QUEUE_CAPACITY = 1024;
 
-public final class ItemGenerator extends Questionary implements Generator {
 	static final String PROPERTY_RANDOM_NUM_FILES = "generator.item.random.num";
 	static final String PROPERTY_RANDOM_DATA = "generator.item.random.data";
 	static final String PROPERTY_RANDOM_SIZE_FILES = "generator.item.random.size";
+	static final String PROPERTY_RANDOM_NUM_COMPONENTS = "generator.item.random.components";
+	static final String PROPERTY_RANDOM_VIRTUAL_URL = "generator.item.random.virtual.url";
+	static final String PROPERTY_RANDOM_POOL = "generator.item.random.pool";
+	static final String PROPERTY_RANDOM_POOL_UNIQUE = "generator.item.random.pool.unique";
+	static final String PROPERTY_RANDOM_POOL_SKEW = "generator.item.random.pool.skew";
 	static final String PROPERTY_INPUT_DIRECTORY = "generator.item.input.directory";
 	static final String PROPERTY_CONTEXT_ID = "generator.item.context.id";
 	static final String PROPERTY_CONTENTMODEL_ID = "generator.item.contentmodel.id";
 	static final String PROPERTY_RESULT_PATH = "generator.item.result.path";
 	static final String PROPERTY_FILE_TYPES = "generator.item.input.types";
 	static final String PROPERTY_STORAGE_TYPE = "generator.item.storage.type";
+	static final String PROPERTY_STAGE_INPUTS = "generator.item.input.stage";
 
-	private final Properties properties;
-	private final Marshaller<Item> itemMarshaller = Marshaller.getMarshaller(Item.class);
+	private boolean randomData;
+	private String contextId;
+	private String contentModelId;
+	private StorageType storageType;
+	private SizeDistribution sizes;
+	private SizeDistribution componentCounts;
+	private ContentPool pool;
+	private String virtualUrl;
+	private List<File> inputs;
+	private InputScanner scanner;
+	private boolean stageInputs;
 
 	ItemGenerator(final Properties properties) {
-		super(new BufferedReader(new InputStreamReader(System.in)), System.out);
-		this.properties = properties;
+		super(properties, Item.class, "item-");
 	}
 
 	public void interactive() {
@@ -100,8 +114,52 @@ public final class ItemGenerator extends Questionary implements Generator {
 		if (randomData) {
 			final int numObjects = this.poseQuestion(Integer.class, 10, "How many objects should be created [default=10] ?");
 			this.properties.setProperty(PROPERTY_RANDOM_NUM_FILES, String.valueOf(numObjects));
-			final long size = this.poseQuestion(Long.class, 1000L, "What size in kilobytes should the random data have [default=10] ?");
-			this.properties.setProperty(PROPERTY_RANDOM_SIZE_FILES, String.valueOf(size * 1024));
+			String size;
+			do {
+				size = this.poseQuestion(String.class, "1000k",
+						"What size should the random data have? Enter a size in bytes or with a unit like 512k, 10M or 50G, or a distribution like lognormal:1M,1.5 [default=1000k]");
+			} while (!isDistribution(size));
+			this.properties.setProperty(PROPERTY_RANDOM_SIZE_FILES, size);
+			final String virtualUrl = this.poseQuestion(String.class, "",
+					"Enter the URL of a virtual content server started with -V to reference contents generated on the fly instead of writing them, or leave empty to write the contents [default=empty]");
+			if (virtualUrl.length() > 0) {
+				// no contents are written
+				this.properties.setProperty(PROPERTY_RANDOM_VIRTUAL_URL, virtualUrl);
+			} else {
+				final RandomContentWriter.FileMode mode;
+				switch (this.poseQuestion(Integer.class, 1,
+						"How should the random data be written? [default=1]\n[1 = streamed, 2 = as sparse files filled with a random block every 64M] ")) {
+				case 2:
+					mode = RandomContentWriter.FileMode.SPARSE;
+					break;
+				default:
+					mode = RandomContentWriter.FileMode.STREAM;
+				}
+				this.properties.setProperty(CommandlineInterface.PROPERTY_CONTENT_MODE, mode.name().toLowerCase());
+			}
+			String components;
+			do {
+				components = this.poseQuestion(String.class, "1",
+						"How many components should an item have? Enter a number or a distribution like uniform:1,10 or lognormal:3,1 [default=1]");
+			} while (!isDistribution(components));
+			this.properties.setProperty(PROPERTY_RANDOM_NUM_COMPONENTS, components);
+			final int poolSize = this.poseQuestion(Integer.class, 0,
+					"How many random contents should the components share? Enter 0 to give every component content of its own [default=0]");
+			if (poolSize > 0) {
+				this.properties.setProperty(PROPERTY_RANDOM_POOL, String.valueOf(poolSize));
+				double unique;
+				do {
+					unique = this.poseQuestion(Double.class, 0d,
+							"Which fraction of the components should get content of its own anyway [default=0] ?");
+				} while (unique < 0 || unique > 1);
+				this.properties.setProperty(PROPERTY_RANDOM_POOL_UNIQUE, String.valueOf(unique));
+				double skew;
+				do {
+					skew = this.poseQuestion(Double.class, 1d,
+							"What's the exponent of the Zipf distribution of the shared contents' popularity, 0 references all contents equally often [default=1] ?");
+				} while (skew < 0);
+				this.properties.setProperty(PROPERTY_RANDOM_POOL_SKEW, String.valueOf(skew));
+			}
 		} else {
 			File dir;
 			do {
@@ -114,105 +172,141 @@ public final class ItemGenerator extends Questionary implements Generator {
 				types="*";
 			}
 			this.properties.setProperty(PROPERTY_FILE_TYPES, types);
+			final boolean stage = this.poseQuestion(Boolean.class, false,
+					"Do you want to place the test files into the target directory using hard links or copies [default=no] ?");
+			this.properties.setProperty(PROPERTY_STAGE_INPUTS, String.valueOf(stage));
 
 		}
 	}
 
-	public List<File> generateFiles() throws IOException, ParserConfigurationException, InternalClientException {
-		final List<File> files = new ArrayList<File>();
-		final boolean randomData = Boolean.parseBoolean(properties.getProperty(PROPERTY_RANDOM_DATA));
-		final File targetDirectory = new File(properties.getProperty(CommandlineInterface.PROPERTY_TARGET_DIRECTORY));
-		final String contextId = properties.getProperty(PROPERTY_CONTEXT_ID);
-		final String contentModelId = properties.getProperty(PROPERTY_CONTENTMODEL_ID);
-		final StorageType storageType= StorageType.valueOf(properties.getProperty(PROPERTY_STORAGE_TYPE));
+	@Override
+	void prepare() throws IOException, InterruptedException {
+		randomData = Boolean.parseBoolean(properties.getProperty(PROPERTY_RANDOM_DATA));
+		contextId = properties.getProperty(PROPERTY_CONTEXT_ID);
+		contentModelId = properties.getProperty(PROPERTY_CONTENTMODEL_ID);
+		storageType = StorageType.valueOf(properties.getProperty(PROPERTY_STORAGE_TYPE));
 		if (randomData) {
-			generateRandomData(contextId, contentModelId, targetDirectory, files,storageType);
+			// the size may be given in bytes or as a distribution of sizes in bytes
+			sizes = SizeDistribution.parse(properties.getProperty(PROPERTY_RANDOM_SIZE_FILES));
+			componentCounts = SizeDistribution.parse(properties.getProperty(PROPERTY_RANDOM_NUM_COMPONENTS, "1"));
+			virtualUrl = properties.getProperty(PROPERTY_RANDOM_VIRTUAL_URL);
+			if (virtualUrl != null && virtualUrl.endsWith("/")) {
+				virtualUrl = virtualUrl.substring(0, virtualUrl.length() - 1);
+			}
+			final int poolSize = Integer.parseInt(properties.getProperty(PROPERTY_RANDOM_POOL, "0").trim());
+			pool = poolSize > 0 ? new ContentPool(poolSize, Double.parseDouble(properties.getProperty(
+					PROPERTY_RANDOM_POOL_UNIQUE, "0").trim()), Double.parseDouble(properties.getProperty(
+					PROPERTY_RANDOM_POOL_SKEW, "1").trim()), sizes, CommandlineInterface.getSeed(properties)) : null;
 		} else {
-			generateData(contextId, contentModelId, targetDirectory, files, new File(properties.getProperty(PROPERTY_INPUT_DIRECTORY)),this.properties.getProperty(PROPERTY_FILE_TYPES).split(","),storageType);
+			final File inputDirectory = new File(properties.getProperty(PROPERTY_INPUT_DIRECTORY));
+			final String[] fileTypes = properties.getProperty(PROPERTY_FILE_TYPES).split(",");
+			final int numThreads = CommandlineInterface.getNumThreads(properties);
+			if (requiresStableIndices()) {
+				// the order of the scan is unspecified, but the indices have to be stable for resuming a run
+				inputs = InputScanner.list(inputDirectory, fileTypes, numThreads);
+				Collections.sort(inputs);
+			} else {
+				// items are generated while the input directory is scanned
+				inputs = null;
+				scanner = new InputScanner(inputDirectory, fileTypes, numThreads, INPUT_QUEUE_CAPACITY);
+				scanner.start();
+			}
+			stageInputs = Boolean.parseBoolean(properties.getProperty(PROPERTY_STAGE_INPUTS));
 		}
-		ProgressBar.printProgressBar(100, true);
-		return files;
 	}
 
-	private void generateData(String contextId, String contentModelId, File targetDirectory, List<File> files,
-			File inputDirectory, String[] fileTypes,StorageType storageType) throws IOException,ParserConfigurationException,InternalClientException {
-		List<File> inputs = getFiles(inputDirectory, fileTypes);
-		for (File input : inputs) {
-			OutputStream out = null;
-			try {
-				File outFile = File.createTempFile("item-", ".xml", targetDirectory);
-				Item item = EscidocObjects.createItem(contextId, contentModelId, Arrays.asList(EscidocObjects.createComponentFromURI("component-"
-						+ UUID.randomUUID().toString(), input.getAbsolutePath(),storageType)));
-				String xml = itemMarshaller.marshalDocument(item);
-				out = new FileOutputStream(outFile);
-				files.add(outFile);
-				IOUtils.write(xml, out);
-			} finally {
-				IOUtils.closeQuietly(out);
-			}
+	@Override
+	int getNumObjects() {
+		if (randomData) {
+			return Integer.parseInt(properties.getProperty(PROPERTY_RANDOM_NUM_FILES));
 		}
-		System.out.println(":: generated " + files.size() + " items");
+		return scanner == null ? inputs.size() : UNKNOWN_NUM_OBJECTS;
 	}
 
-	private List<File> getFiles(File inputDirectory, String[] fileTypes) {
-		List<File> files = new ArrayList<File>();
-		for (String name : inputDirectory.list()) {
-			File f = new File(inputDirectory, name);
-			if (f.isFile() && f.canRead() && isOfType(f, fileTypes)) {
-				files.add(f);
-			} else if (f.isDirectory() && f.canRead()) {
-				files.addAll(getFiles(f, fileTypes));
+	@Override
+	int claimIndex(final AtomicInteger nextIndex, final Worker worker) throws Exception {
+		// the next input and its index are claimed together, so the indices of all inputs are contiguous
+		synchronized (scanner) {
+			final File input = scanner.take();
+			if (input == null) {
+				return -1;
 			}
+			worker.setInput(input);
+			return nextIndex.getAndIncrement();
 		}
-		return files;
 	}
 
-	private boolean isOfType(File f, String[] fileTypes) {
-		for (String type : fileTypes) {
-			if (type.equals("*")) {
-				return true;
-			}else if (f.getName().endsWith("." + type)) {
-				return true;
-			}
+	@Override
+	void cleanup() {
+		if (scanner != null) {
+			scanner.close();
+			scanner = null;
 		}
-		return false;
 	}
 
-	private void generateRandomData(String contextId, String contentModelId, File targetDirectory, List<File> files,StorageType storageType)
-			throws IOException,ParserConfigurationException,InternalClientException {
-		final int numFiles = Integer.parseInt(properties.getProperty(PROPERTY_RANDOM_NUM_FILES));
-		int currentPercent = 0;
-		int oldPercent = 0;
-		long size = Long.parseLong(properties.getProperty(PROPERTY_RANDOM_SIZE_FILES));
-
-		for (int i = 0; i < numFiles; i++) {
-			Item item = EscidocObjects.createItem(contextId, contentModelId, Arrays.asList(EscidocObjects.createComponentFromRandomData(targetDirectory, size,storageType)));
-			String xml = itemMarshaller.marshalDocument(item);
-			FileOutputStream out = null;
-			try {
-				File outFile = File.createTempFile("item-", ".xml", targetDirectory);
-				out = new FileOutputStream(outFile);
-				files.add(outFile);
-				IOUtils.write(xml, out);
-				oldPercent = currentPercent;
-				currentPercent = (int) ((double) i / (double) numFiles * 100d);
-				if (currentPercent > oldPercent) {
-					ProgressBar.printProgressBar(currentPercent);
+	@Override
+	File getResultFile() {
+		return new File(properties.getProperty(PROPERTY_RESULT_PATH));
+	}
+
+	@Override
+	Item createObject(final int index, final Worker worker) throws IOException, ParserConfigurationException {
+		final List<MetadataRecord> records = Arrays.asList(EscidocObjects.createMetadataRecord("test-object", "item",
+				worker.getModificationDate()));
+		if (randomData) {
+			final FastRandom random = worker.getRandom();
+			final int numComponents = (int) Math.min(Integer.MAX_VALUE, componentCounts.sample(random));
+			final List<Component> components = new ArrayList<Component>(numComponents);
+			for (int c = 0; c < numComponents; c++) {
+				final int pooled = pool == null ? -1 : pool.select(random);
+				if (virtualUrl != null && virtualUrl.length() > 0) {
+					// nothing is written, the content is generated by the server when it is fetched
+					final long contentSeed = pooled >= 0 ? pool.getSeed(pooled) : random.nextLong();
+					final long size = pooled >= 0 ? pool.getSize(pooled) : sizes.sample(random);
+					components.add(EscidocObjects.createComponentFromURL("why?", worker.slot(virtualUrl
+							+ VirtualContentServer.getPath(contentSeed, size)), worker.slot("content-" + contentSeed
+							+ ".content"), storageType));
+					continue;
 				}
-			} finally {
-				out.close();
+				final String contentName;
+				if (pooled >= 0) {
+					contentName = worker.slot(ContentPool.getName(pooled));
+					worker.writePooledContent(pool, pooled);
+				} else {
+					// the contents are streamed one after another, so no content is held in memory
+					contentName = worker.createName(index, "item-", c == 0 ? ".content" : "-" + c + ".content");
+					worker.writeContent(contentName, sizes.sample(random));
+				}
+				components.add(EscidocObjects.createComponentFromURI("why?", contentName, storageType));
 			}
+			return EscidocObjects.createItem(getContextId(index, worker), getContentModelId(index, worker), components,
+					records);
 		}
-		final File result = new File(properties.getProperty(PROPERTY_RESULT_PATH));
-		FileOutputStream out = null;
-		try {
-			out = new FileOutputStream(result, false);
-			for (File f : files) {
-				out.write(new String("testdaten/daten/" + f.getName() + "," + f.getName() + ",text/xml\n").getBytes("UTF-8"));
-				out.flush();
-			}
-		} finally {
-			IOUtils.closeQuietly(out);
+		final File input = scanner == null ? inputs.get(index) : (File) worker.getInput();
+		final String fileName;
+		if (stageInputs) {
+			// the item references the copy in the target, which is staged while the item is marshalled
+			fileName = worker.createName(index, "item-", "-" + input.getName());
+			worker.stageFile(fileName, input);
+		} else {
+			fileName = worker.slot(input.getAbsolutePath());
 		}
+		return EscidocObjects.createItem(getContextId(index, worker), getContentModelId(index, worker), Arrays
+				.asList(EscidocObjects.createComponentFromURI("component-" + worker.createUUID().toString(), fileName,
+						storageType)), records);
+	}
+
+	/**
+	 * @return the ID of the context of an item
+	 */
+	String getContextId(final int index, final Worker worker) {
+		return contextId;
+	}
+
+	/**
+	 * @return the ID of the content model of an item
+	 */
+	String getContentModelId(final int index, final Worker worker) {
+		return contentModelId;
 	}
 }
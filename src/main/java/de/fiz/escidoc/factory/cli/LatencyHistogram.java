@@ -0,0 +1,115 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread safe histogram of latencies in nanoseconds with a constant memory footprint. Values below 64 are counted
+ * exactly, larger values are counted in 32 linear buckets per power of two, so every percentile is accurate to about
+ * 3% of its value over the whole range of long values. Recording a value is lock free and does not allocate
+ */
+final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+	private static final int NUM_BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sum = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Record a latency
+	 *
+	 * @param nanos
+	 *            the latency in nanoseconds, negative values are recorded as 0
+	 */
+	void record(final long nanos) {
+		final long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long currentMax;
+		while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+			// retry
+		}
+	}
+
+	/**
+	 * Add all values recorded by another histogram to this histogram
+	 *
+	 * @param other
+	 *            the histogram to add
+	 */
+	void add(final LatencyHistogram other) {
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			final long c = other.counts.get(i);
+			if (c > 0) {
+				counts.addAndGet(i, c);
+			}
+		}
+		count.addAndGet(other.count.get());
+		sum.addAndGet(other.sum.get());
+		long currentMax;
+		final long otherMax = other.max.get();
+		while (otherMax > (currentMax = max.get()) && !max.compareAndSet(currentMax, otherMax)) {
+			// retry
+		}
+	}
+
+	long getCount() {
+		return count.get();
+	}
+
+	long getMax() {
+		return max.get();
+	}
+
+	double getMean() {
+		final long c = count.get();
+		return c == 0 ? 0d : (double) sum.get() / c;
+	}
+
+	/**
+	 * Get the value below or at which the given percentage of the recorded values lie
+	 *
+	 * @param percentile
+	 *            the percentile between 0 and 100
+	 * @return the highest value of the bucket containing the percentile or 0 if nothing has been recorded
+	 */
+	long getValueAtPercentile(final double percentile) {
+		final long total = count.get();
+		if (total == 0) {
+			return 0;
+		}
+		final long rank = Math.max(1, (long) Math.ceil(Math.min(100d, percentile) / 100d * total));
+		long seen = 0;
+		for (int i = 0; i < NUM_BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValueOf(i), max.get());
+			}
+		}
+		return max.get();
+	}
+
+	static int bucketOf(final long value) {
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		final int exponent = 63 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - SUB_BUCKET_BITS;
+		final int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+		return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long highestValueOf(final int bucket) {
+		if (bucket < LINEAR_LIMIT) {
+			return bucket;
+		}
+		final int shift = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+		final long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
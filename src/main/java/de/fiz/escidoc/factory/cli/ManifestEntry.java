@@ -0,0 +1,67 @@
+package de.fiz.escidoc.factory.cli;
+
+/**
+ * The entry of a generated object in the testplan file. The XML of an object is either a file of its own, which may
+ * be gzip compressed, or a member of a gzip stream shared by the objects of a run
+ */
+final class ManifestEntry {
+	private final String name;
+	private final String file;
+	private final long offset;
+	private final long size;
+	private final long compressedSize;
+
+	/**
+	 * An uncompressed XML file
+	 *
+	 * @param name
+	 *            the name of the file
+	 */
+	ManifestEntry(final String name) {
+		this(name, name, -1, -1, -1);
+	}
+
+	/**
+	 * @param name
+	 *            the name of the object's XML file
+	 * @param file
+	 *            the file in the target containing the XML
+	 * @param offset
+	 *            the offset of the gzip member in the file or -1 if the file contains the object only
+	 * @param size
+	 *            the uncompressed size of the XML
+	 * @param compressedSize
+	 *            the compressed size of the XML or -1 if the XML is not compressed
+	 */
+	ManifestEntry(final String name, final String file, final long offset, final long size, final long compressedSize) {
+		this.name = name;
+		this.file = file;
+		this.offset = offset;
+		this.size = size;
+		this.compressedSize = compressedSize;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	String getFile() {
+		return file;
+	}
+
+	long getOffset() {
+		return offset;
+	}
+
+	long getSize() {
+		return size;
+	}
+
+	long getCompressedSize() {
+		return compressedSize;
+	}
+
+	boolean isCompressed() {
+		return compressedSize >= 0;
+	}
+}
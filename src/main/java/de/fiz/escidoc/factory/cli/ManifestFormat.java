@@ -0,0 +1,131 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.util.Properties;
+
+/**
+ * The formats of the testplan files listing the generated XML files. Every entry is a line of its own, so the files of
+ * several shards can be concatenated. Entries of compressed XML files additionally contain the uncompressed and the
+ * compressed size and, for members of a gzip stream, the offset of the member in the stream
+ */
+enum ManifestFormat {
+	/**
+	 * <code>&lt;prefix&gt;&lt;file&gt;,&lt;name&gt;,text/xml[,&lt;size&gt;,&lt;compressed size&gt;[,&lt;offset&gt;]]</code>
+	 * as read by the testplans
+	 */
+	CSV {
+		@Override
+		void appendEntry(final StringBuilder line, final String prefix, final ManifestEntry entry) {
+			line.append(prefix).append(entry.getFile()).append(',').append(entry.getName()).append(",text/xml");
+			if (entry.isCompressed()) {
+				line.append(',').append(entry.getSize()).append(',').append(entry.getCompressedSize());
+			}
+			if (entry.getOffset() >= 0) {
+				line.append(',').append(entry.getOffset());
+			}
+			line.append('\n');
+		}
+
+		@Override
+		String parsePath(final String line) {
+			final int comma = line.indexOf(',');
+			return comma < 0 ? line.trim() : line.substring(0, comma);
+		}
+	},
+	/**
+	 * A JSON object with the path, the name, the MIME type and the sizes per line
+	 */
+	JSON_LINES {
+		@Override
+		void appendEntry(final StringBuilder line, final String prefix, final ManifestEntry entry) {
+			line.append("{\"path\":\"");
+			appendEscaped(line, prefix);
+			appendEscaped(line, entry.getFile());
+			line.append("\",\"name\":\"");
+			appendEscaped(line, entry.getName());
+			line.append("\",\"mimeType\":\"text/xml\"");
+			if (entry.isCompressed()) {
+				line.append(",\"encoding\":\"gzip\",\"size\":").append(entry.getSize()).append(
+						",\"compressedSize\":").append(entry.getCompressedSize());
+			}
+			if (entry.getOffset() >= 0) {
+				line.append(",\"offset\":").append(entry.getOffset());
+			}
+			line.append("}\n");
+		}
+
+		@Override
+		String parsePath(final String line) {
+			final String key = "\"path\":\"";
+			final int start = line.indexOf(key);
+			if (start < 0) {
+				throw new IllegalArgumentException("The entry has no path: " + line);
+			}
+			final StringBuilder path = new StringBuilder();
+			for (int i = start + key.length(); i < line.length(); i++) {
+				final char c = line.charAt(i);
+				if (c == '"') {
+					return path.toString();
+				} else if (c != '\\' || i + 1 == line.length()) {
+					path.append(c);
+				} else if (line.charAt(++i) == 'u') {
+					path.append((char) Integer.parseInt(line.substring(i + 1, i + 5), 16));
+					i += 4;
+				} else {
+					path.append(line.charAt(i));
+				}
+			}
+			throw new IllegalArgumentException("The path of the entry is not terminated: " + line);
+		}
+	};
+
+	/**
+	 * Append an entry including the line break
+	 *
+	 * @param line
+	 *            the builder to append to
+	 * @param prefix
+	 *            the prefix of the file's path
+	 * @param entry
+	 *            the entry
+	 */
+	abstract void appendEntry(StringBuilder line, String prefix, ManifestEntry entry);
+
+	/**
+	 * @return the path of the file of an entry appended by {@link #appendEntry(StringBuilder, String, ManifestEntry)}
+	 *         including the prefix
+	 */
+	abstract String parsePath(String line);
+
+	/**
+	 * @return the format of an entry line
+	 */
+	static ManifestFormat ofLine(final String line) {
+		return line.startsWith("{") ? JSON_LINES : CSV;
+	}
+
+	/**
+	 * @return the format set by {@link CommandlineInterface#PROPERTY_MANIFEST_FORMAT}, CSV by default
+	 */
+	static ManifestFormat fromProperties(final Properties properties) {
+		final String format = properties.getProperty(CommandlineInterface.PROPERTY_MANIFEST_FORMAT, "csv").trim();
+		if (format.equalsIgnoreCase("csv")) {
+			return CSV;
+		} else if (format.equalsIgnoreCase("jsonl")) {
+			return JSON_LINES;
+		}
+		throw new IllegalArgumentException("Unknown manifest format " + format + ", expected csv or jsonl");
+	}
+
+	private static void appendEscaped(final StringBuilder json, final String value) {
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+	}
+}
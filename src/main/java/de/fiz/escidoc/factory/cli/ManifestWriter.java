@@ -0,0 +1,150 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Appends the entries of a testplan file as soon as the objects have been generated. Objects may be finished in any
+ * order by concurrent workers, but the entries are written in the order of the objects' indices: an entry is held
+ * back until the entries of all objects with a lower index have been written. The entries are encoded into a large
+ * buffer, which is written to the stream when it is full or the entries are flushed. This class is not thread safe,
+ * callers have to synchronize
+ */
+final class ManifestWriter implements Closeable {
+	/**
+	 * The path prefix of the entries if {@link CommandlineInterface#PROPERTY_MANIFEST_PREFIX} is not set
+	 */
+	static final String DEFAULT_PREFIX = "testdaten/daten/";
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final OutputStream out;
+	private final ManifestFormat format;
+	private final String prefix;
+	private final Map<Integer, ManifestEntry> pending = new HashMap<Integer, ManifestEntry>();
+	private final StringBuilder line = new StringBuilder(128);
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position;
+	private int nextIndex;
+	private long length;
+	private int numUnflushed;
+
+	/**
+	 * @param out
+	 *            the stream to append the entries to
+	 * @param format
+	 *            the format of the entries
+	 * @param prefix
+	 *            the prefix of the paths of the files
+	 * @param nextIndex
+	 *            the index of the first object whose entry has not been written yet
+	 * @param length
+	 *            the number of bytes already in the file
+	 */
+	ManifestWriter(final OutputStream out, final ManifestFormat format, final String prefix, final int nextIndex,
+			final long length) {
+		this.out = out;
+		this.format = format;
+		this.prefix = prefix;
+		this.nextIndex = nextIndex;
+		this.length = length;
+	}
+
+	/**
+	 * Add the entry of a generated object
+	 *
+	 * @param index
+	 *            the index of the object
+	 * @param entry
+	 *            the entry of the object
+	 * @throws IOException
+	 */
+	void add(final int index, final ManifestEntry entry) throws IOException {
+		pending.put(index, entry);
+		ManifestEntry next;
+		while ((next = pending.remove(nextIndex)) != null) {
+			line.setLength(0);
+			format.appendEntry(line, prefix, next);
+			append(line);
+			numUnflushed++;
+			nextIndex++;
+		}
+	}
+
+	/**
+	 * Encode a line into the buffer, ASCII characters are copied directly
+	 */
+	private void append(final CharSequence chars) throws IOException {
+		final int len = chars.length();
+		for (int i = 0; i < len; i++) {
+			final char c = chars.charAt(i);
+			if (c >= 0x80) {
+				final byte[] encoded = chars.subSequence(i, len).toString().getBytes(StandardCharsets.UTF_8);
+				if (encoded.length > buffer.length - position) {
+					drain();
+				}
+				if (encoded.length > buffer.length) {
+					out.write(encoded);
+				} else {
+					System.arraycopy(encoded, 0, buffer, position, encoded.length);
+					position += encoded.length;
+				}
+				length += encoded.length;
+				return;
+			}
+			if (position == buffer.length) {
+				drain();
+			}
+			buffer[position++] = (byte) c;
+			length++;
+		}
+	}
+
+	private void drain() throws IOException {
+		out.write(buffer, 0, position);
+		position = 0;
+	}
+
+	/**
+	 * Flush the written entries if at least the given number of entries has been written since the last flush
+	 *
+	 * @param interval
+	 *            the number of entries
+	 * @return true if the entries have been flushed
+	 * @throws IOException
+	 */
+	boolean flush(final int interval) throws IOException {
+		if (numUnflushed < interval || numUnflushed == 0) {
+			return false;
+		}
+		drain();
+		out.flush();
+		numUnflushed = 0;
+		return true;
+	}
+
+	/**
+	 * @return the index of the first object whose entry has not been written yet
+	 */
+	int getNextIndex() {
+		return nextIndex;
+	}
+
+	/**
+	 * @return the number of bytes in the file including the buffered entries
+	 */
+	long getLength() {
+		return length;
+	}
+
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			out.close();
+		}
+	}
+}
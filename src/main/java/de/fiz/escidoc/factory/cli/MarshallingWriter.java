@@ -0,0 +1,134 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+
+import de.escidoc.core.client.exceptions.InternalClientException;
+import de.escidoc.core.common.jibx.Marshaller;
+
+/**
+ * Writes marshalled eSciDoc resources as UTF-8 directly into a {@link WritableByteChannel}. The characters produced
+ * by the {@link Marshaller} are encoded chunk by chunk into a reusable direct buffer, so no intermediate byte array of
+ * the whole document is created and the channel receives large writes instead of an unbuffered stream of bytes.
+ * Instances are not thread safe, concurrent workers should use an instance each
+ */
+final class MarshallingWriter<T> {
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final Marshaller<T> marshaller;
+	private final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder();
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+	MarshallingWriter(final Class<T> type) {
+		this.marshaller = Marshaller.getMarshaller(type);
+	}
+
+	/**
+	 * Marshal a resource into a document
+	 *
+	 * @param resource
+	 *            the resource to marshal
+	 * @return the XML document
+	 * @throws InternalClientException
+	 *             if the resource could not be marshalled
+	 */
+	String marshal(final T resource) throws InternalClientException {
+		return marshaller.marshalDocument(resource);
+	}
+
+	/**
+	 * Encode an already marshalled document as UTF-8 into a file of an {@link OutputTarget}
+	 *
+	 * @param xml
+	 *            the document
+	 * @param target
+	 *            the target to write to
+	 * @param name
+	 *            the name of the file
+	 * @return the number of bytes written
+	 * @throws IOException
+	 */
+	long write(final CharSequence xml, final OutputTarget target, final String name) throws IOException {
+		final WritableByteChannel channel = target.openFile(name);
+		try {
+			return write(xml, channel);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Write an already encoded document into a file of an {@link OutputTarget}
+	 *
+	 * @param document
+	 *            the buffer containing the document, which is consumed
+	 * @param target
+	 *            the target to write to
+	 * @param name
+	 *            the name of the file
+	 * @return the number of bytes written
+	 * @throws IOException
+	 */
+	long write(final ByteBuffer document, final OutputTarget target, final String name) throws IOException {
+		final WritableByteChannel channel = target.openFile(name);
+		try {
+			final int len = document.remaining();
+			while (document.hasRemaining()) {
+				channel.write(document);
+			}
+			return len;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Encode an already marshalled document as UTF-8 into a channel. The channel is not closed
+	 *
+	 * @param xml
+	 *            the document
+	 * @param channel
+	 *            the channel to write to
+	 * @return the number of bytes written
+	 * @throws IOException
+	 */
+	long write(final CharSequence xml, final WritableByteChannel channel) throws IOException {
+		final CharBuffer chars = CharBuffer.wrap(xml);
+		long numWritten = 0;
+		encoder.reset();
+		CoderResult result;
+		do {
+			result = encoder.encode(chars, buffer, true);
+			checkResult(result);
+			numWritten += drain(channel);
+		} while (result.isOverflow());
+		do {
+			result = encoder.flush(buffer);
+			checkResult(result);
+			numWritten += drain(channel);
+		} while (result.isOverflow());
+		return numWritten;
+	}
+
+	private static void checkResult(final CoderResult result) throws CharacterCodingException {
+		if (result.isError()) {
+			result.throwException();
+		}
+	}
+
+	private int drain(final WritableByteChannel channel) throws IOException {
+		buffer.flip();
+		final int len = buffer.remaining();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+		return len;
+	}
+}
@@ -0,0 +1,95 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+import de.fiz.escidoc.factory.RandomContentWriter;
+
+/**
+ * The destination of the files produced by the generators. Files are either written to a directory or streamed
+ * directly into an archive. Implementations have to be thread safe, so concurrent workers can share a target
+ */
+abstract class OutputTarget implements Closeable {
+
+	/**
+	 * Create a new unique name for a file
+	 *
+	 * @param prefix
+	 *            the prefix of the name
+	 * @param suffix
+	 *            the suffix of the name
+	 * @return the new name
+	 * @throws IOException
+	 */
+	abstract String createName(String prefix, String suffix) throws IOException;
+
+	/**
+	 * Open a file for writing. The data has to be written and the returned channel has to be closed by the calling
+	 * thread before it opens the next file
+	 *
+	 * @param name
+	 *            the name of the file as returned by {@link #createName(String, String)}
+	 * @return a channel which finishes the file when closed
+	 * @throws IOException
+	 */
+	abstract WritableByteChannel openFile(String name) throws IOException;
+
+	/**
+	 * Open a result file like a CSV file for the testplan
+	 *
+	 * @param resultFile
+	 *            the configured location of the result file
+	 * @return a channel which finishes the file when closed
+	 * @throws IOException
+	 */
+	abstract WritableByteChannel openResultFile(File resultFile) throws IOException;
+
+	/**
+	 * Write a file containing random data
+	 *
+	 * @param name
+	 *            the name of the file as returned by {@link #createName(String, String)}
+	 * @param writer
+	 *            the writer used for creating the data
+	 * @param size
+	 *            the number of bytes to write
+	 * @throws IOException
+	 */
+	abstract void writeRandomContent(String name, RandomContentWriter writer, long size) throws IOException;
+
+	/**
+	 * Place an existing file into the target. Implementations avoid copying the data wherever the platform allows
+	 *
+	 * @param name
+	 *            the name of the file in the target
+	 * @param source
+	 *            the file to place into the target
+	 * @return the number of bytes staged
+	 * @throws IOException
+	 */
+	abstract long stageFile(String name, File source) throws IOException;
+
+	/**
+	 * Get a target which writes into the given directory if this is a directory target. Archive targets return
+	 * themselves since there is only a single archive
+	 *
+	 * @param directory
+	 *            the directory to write to
+	 * @return the target for the given directory
+	 */
+	abstract OutputTarget forDirectory(File directory);
+
+	/**
+	 * @param name
+	 *            the name of a file in the target
+	 * @return the location of the file or null if it has been streamed into an archive
+	 */
+	abstract File getFile(String name);
+
+	/**
+	 * @return true if this target writes all files into a single archive
+	 */
+	abstract boolean isArchive();
+}
@@ -0,0 +1,78 @@
+package de.fiz.escidoc.factory.cli;
+
+/**
+ * A fixed size array of non negative ints below a bound, packed into longs with as many bits per value as the bound
+ * requires. A hundred million references to a thousand nodes take 125 MB instead of the 400 MB of an int array.
+ * Concurrent reads are safe once the values have been set and published
+ */
+final class PackedIntArray {
+	private final int size;
+	private final int bitsPerValue;
+	private final long mask;
+	private final long[] blocks;
+
+	/**
+	 * @param size
+	 *            the number of values
+	 * @param bound
+	 *            the exclusive upper bound of the values
+	 */
+	PackedIntArray(final int size, final int bound) {
+		if (size < 0 || bound < 1) {
+			throw new IllegalArgumentException("Invalid size " + size + " or bound " + bound);
+		}
+		this.size = size;
+		this.bitsPerValue = Math.max(1, 32 - Integer.numberOfLeadingZeros(bound - 1));
+		this.mask = (1L << bitsPerValue) - 1;
+		this.blocks = new long[(int) (((long) size * bitsPerValue + 63) >>> 6)];
+	}
+
+	int get(final int index) {
+		checkIndex(index);
+		final long bit = (long) index * bitsPerValue;
+		final int block = (int) (bit >>> 6);
+		final int shift = (int) (bit & 63);
+		long value = blocks[block] >>> shift;
+		if (shift + bitsPerValue > 64) {
+			// the value continues in the low bits of the next block
+			value |= blocks[block + 1] << (64 - shift);
+		}
+		return (int) (value & mask);
+	}
+
+	void set(final int index, final int value) {
+		checkIndex(index);
+		if ((value & ~mask) != 0) {
+			throw new IllegalArgumentException("Value " + value + " does not fit into " + bitsPerValue + " bits");
+		}
+		final long bit = (long) index * bitsPerValue;
+		final int block = (int) (bit >>> 6);
+		final int shift = (int) (bit & 63);
+		blocks[block] = (blocks[block] & ~(mask << shift)) | ((long) value << shift);
+		if (shift + bitsPerValue > 64) {
+			final int spill = 64 - shift;
+			blocks[block + 1] = (blocks[block + 1] & ~(mask >>> spill)) | ((long) value >>> spill);
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	int getBitsPerValue() {
+		return bitsPerValue;
+	}
+
+	/**
+	 * @return the number of bytes occupied by the values
+	 */
+	long getSizeInBytes() {
+		return blocks.length * 8L;
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stage of the generator pipeline: a fixed number of threads taking jobs from a bounded queue. Producers block while
+ * the queue is full, so a slow stage throttles the stages feeding it instead of piling up jobs in memory. Every thread
+ * owns a {@link Handler} created by {@link #createHandler()}, so handlers need not be thread safe
+ *
+ * @param <J>
+ *            the type of the jobs
+ */
+abstract class PipelineStage<J> {
+	private static final Object END = new Object();
+
+	private final int numThreads;
+	private final BlockingQueue<Object> queue;
+	private final ExecutorService executor;
+	private final List<Future<?>> threads = new ArrayList<Future<?>>();
+
+	/**
+	 * Processes the jobs taken by one thread of a stage
+	 */
+	interface Handler<J> {
+		void handle(J job) throws Exception;
+
+		/**
+		 * Called after the last job has been handled
+		 */
+		void close() throws Exception;
+	}
+
+	/**
+	 * @param numThreads
+	 *            the number of threads of the stage
+	 * @param capacity
+	 *            the number of jobs which may wait for a thread of the stage
+	 */
+	PipelineStage(final int numThreads, final int capacity) {
+		this.numThreads = numThreads;
+		this.queue = new ArrayBlockingQueue<Object>(capacity);
+		this.executor = Executors.newFixedThreadPool(numThreads);
+	}
+
+	/**
+	 * Create the handler of a thread, this is called by the thread itself
+	 */
+	abstract Handler<J> createHandler() throws Exception;
+
+	/**
+	 * Start the threads of the stage
+	 */
+	void start() {
+		for (int i = 0; i < numThreads; i++) {
+			threads.add(executor.submit(new Callable<Void>() {
+				@SuppressWarnings("unchecked")
+				public Void call() throws Exception {
+					final Handler<J> handler = createHandler();
+					Object job;
+					while ((job = queue.take()) != END) {
+						handler.handle((J) job);
+					}
+					// leave the marker for the other threads
+					queue.put(END);
+					handler.close();
+					return null;
+				}
+			}));
+		}
+		executor.shutdown();
+	}
+
+	/**
+	 * Hand a job to the stage, waiting while the queue is full
+	 *
+	 * @throws Exception
+	 *             the failure of a thread of the stage, if any
+	 */
+	void put(final J job) throws Exception {
+		enqueue(job);
+	}
+
+	/**
+	 * Let the threads finish after the jobs queued so far
+	 */
+	void close() throws Exception {
+		enqueue(END);
+	}
+
+	private void enqueue(final Object job) throws Exception {
+		while (!queue.offer(job, 100, TimeUnit.MILLISECONDS)) {
+			// a failed stage does not take any more jobs
+			for (Future<?> thread : threads) {
+				if (thread.isDone()) {
+					AbstractGenerator.getResult(thread);
+				}
+			}
+		}
+	}
+
+	boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * @return the tasks of the stage's threads, which fail with the first failure of a job
+	 */
+	List<Future<?>> getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Interrupt the threads of the stage
+	 */
+	void abort() {
+		executor.shutdownNow();
+	}
+}
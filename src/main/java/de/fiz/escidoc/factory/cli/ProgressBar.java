@@ -6,6 +6,17 @@ public abstract class ProgressBar {
 	}
 
 	public static void printProgressBar(int percent, boolean lineBreak) {
+		printProgressBar(percent, lineBreak, "");
+	}
+
+	public static void printProgressCount(long count, boolean lineBreak, String status) {
+		System.out.print("\r" + count + " objects   " + status + "     ");
+		if (lineBreak) {
+			System.out.println();
+		}
+	}
+
+	public static void printProgressBar(int percent, boolean lineBreak, String status) {
 		StringBuilder bar = new StringBuilder("[");
 		for (int i = 0; i < 50; i++) {
 			if (i < (percent / 2)) {
@@ -17,7 +28,7 @@ public abstract class ProgressBar {
 			}
 		}
 
-		bar.append("]   " + percent + "%     ");
+		bar.append("]   " + percent + "%   " + status + "     ");
 		System.out.print("\r" + bar.toString());
 		if (lineBreak) {
 			System.out.println();
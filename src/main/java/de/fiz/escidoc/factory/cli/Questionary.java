@@ -2,8 +2,11 @@ package de.fiz.escidoc.factory.cli;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.PrintStream;
 
+import de.fiz.escidoc.factory.SizeDistribution;
+
 public class Questionary {
 	private final BufferedReader reader;
 	private final PrintStream out;
@@ -36,6 +39,9 @@ public class Questionary {
 					} else if (resultClazz == Long.class) {
 						result = (T) new Long(input);
 						valid = true;
+					} else if (resultClazz == Double.class) {
+						result = (T) new Double(input);
+						valid = true;
 					} else if (resultClazz == Boolean.class) {
 						// Booleans need a little more handling than the rest
 						// Since "no", "yes" and the like should be checked too
@@ -63,6 +69,28 @@ public class Questionary {
 		return result;
 	}
 
+	protected static boolean isDistribution(final String spec) {
+		try {
+			SizeDistribution.parse(spec);
+			return true;
+		} catch (IllegalArgumentException e) {
+			System.err.println("Invalid distribution " + spec + ": " + e.getMessage());
+		} catch (IOException e) {
+			System.err.println("Invalid distribution " + spec + ": " + e.getMessage());
+		}
+		return false;
+	}
+
+	protected static boolean isSize(final String size) {
+		try {
+			SizeDistribution.parseValue(size);
+			return true;
+		} catch (IllegalArgumentException e) {
+			System.err.println("Invalid size " + size + ": " + e.getMessage());
+		}
+		return false;
+	}
+
 	private void printError(String input) throws Exception {
 		System.err.println("Unable to parse input '" + input + "'.Please try again");
 		Thread.sleep(500);
@@ -0,0 +1,381 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A load driver replaying the testplan files of a run against a repository: the XML file of every entry is sent to
+ * the create endpoint of its type by a number of concurrent request threads. In the closed loop mode every thread sends
+ * its next request as soon as the previous one has been answered. In the fixed rate mode the requests are scheduled at
+ * a constant arrival rate and the response time of a request is measured from its scheduled start, so a stalled
+ * repository is charged with the requests it delayed instead of slowing down the load. The response and the service
+ * times are recorded in {@link LatencyHistogram}s
+ */
+final class ReplayDriver {
+	static final int DEFAULT_CONCURRENCY = 8;
+	private static final long PROGRESS_INTERVAL_MILLIS = 1000;
+	private static final double[] PERCENTILES = { 50, 75, 90, 95, 99, 99.9, 99.99, 100 };
+	private static final Pattern PLACEHOLDER = Pattern.compile("\\$\\{([a-z]+):\\d+\\}");
+	// the position appended to the names of the testplan files of shards by Shard.getResultFile
+	private static final Pattern SHARD_POSITION = Pattern.compile("-\\d+-of-\\d+$");
+
+	private final String repository;
+	private final String handle;
+	private final File[] files;
+	private final GraphIndex.NodeType[] types;
+	private final int concurrency;
+	private final double rate;
+	private final long durationNanos;
+	private final long numRequests;
+	private final LatencyHistogram responseTimes = new LatencyHistogram();
+	private final LatencyHistogram serviceTimes = new LatencyHistogram();
+	private final AtomicLong nextRequest = new AtomicLong();
+	private final AtomicLong numDone = new AtomicLong();
+	private final AtomicLong numErrors = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private volatile String firstError;
+	private volatile long startNanos;
+	private volatile long endNanos;
+
+	/**
+	 * @param repository
+	 *            the URL of the repository
+	 * @param handle
+	 *            the handle authenticating the requests or null
+	 * @param files
+	 *            the XML files to send in the order of the testplan
+	 * @param concurrency
+	 *            the number of request threads
+	 * @param rate
+	 *            the number of requests started per second or 0 for the closed loop mode
+	 * @param durationSeconds
+	 *            the duration of the run, during which the files are sent over and over again, or 0 to send every file
+	 *            once
+	 */
+	ReplayDriver(final URL repository, final String handle, final List<File> files, final int concurrency,
+			final double rate, final double durationSeconds) {
+		if (files.isEmpty()) {
+			throw new IllegalArgumentException("The testplan files contain no entries");
+		}
+		if (concurrency < 1 || rate < 0 || durationSeconds < 0) {
+			throw new IllegalArgumentException("The concurrency must be positive, the rate and the duration must not "
+					+ "be negative");
+		}
+		final String url = repository.toString();
+		this.repository = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+		this.handle = handle;
+		this.files = files.toArray(new File[files.size()]);
+		this.types = new GraphIndex.NodeType[this.files.length];
+		for (int i = 0; i < types.length; i++) {
+			types[i] = GraphIndex.NodeType.fromFileName(this.files[i].getName());
+			if (types[i] == null) {
+				throw new IllegalArgumentException("Unable to replay " + this.files[i]
+						+ ", the type of the object is unknown");
+			}
+		}
+		this.concurrency = concurrency;
+		this.rate = rate;
+		this.durationNanos = (long) (durationSeconds * 1e9d);
+		if (durationNanos == 0) {
+			this.numRequests = this.files.length;
+		} else if (rate > 0) {
+			this.numRequests = (long) (rate * durationSeconds);
+		} else {
+			// the closed loop ends with the duration
+			this.numRequests = Long.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Create a driver from the settings of {@link CommandlineInterface#PROPERTY_REPLAY_MANIFESTS} and the related
+	 * properties. The testplan files of the target directory are replayed if no manifests are set. Files referencing
+	 * other objects by placeholders, as generated by a {@link GraphGenerator}, can not be replayed, since the
+	 * placeholders are only replaced by the {@link Ingester}
+	 */
+	static ReplayDriver fromProperties(final Properties properties, final URL repository) throws IOException {
+		final String prefix = properties.getProperty(CommandlineInterface.PROPERTY_MANIFEST_PREFIX,
+				ManifestWriter.DEFAULT_PREFIX);
+		final String directory = properties.getProperty(CommandlineInterface.PROPERTY_TARGET_DIRECTORY, ".");
+		final List<File> manifests = new ArrayList<File>();
+		final String paths = properties.getProperty(CommandlineInterface.PROPERTY_REPLAY_MANIFESTS);
+		if (paths != null && paths.trim().length() > 0) {
+			for (String path : paths.split(",")) {
+				manifests.add(new File(path.trim()));
+			}
+		} else {
+			final File[] found = new File(directory).listFiles();
+			if (found != null) {
+				for (File manifest : found) {
+					if (manifest.getName().startsWith("testdaten-")
+							&& (manifest.getName().endsWith(".csv") || manifest.getName().endsWith(".jsonl"))) {
+						manifests.add(manifest);
+					}
+				}
+			}
+			// replay the types in the order they depend on each other
+			Collections.sort(manifests, new Comparator<File>() {
+				public int compare(final File a, final File b) {
+					return getRank(a) - getRank(b);
+				}
+			});
+		}
+		final List<File> files = new ArrayList<File>();
+		for (File manifest : manifests) {
+			final List<File> listed = readManifest(manifest, prefix, new File(directory));
+			// the files of a testplan file are created by the same generator, so the first file tells about all
+			if (!listed.isEmpty()) {
+				final String placeholder = findPlaceholder(listed.get(0));
+				if (placeholder != null) {
+					throw new IOException("Unable to replay " + manifest + ", its files reference other objects by "
+							+ "placeholders like " + placeholder + ", which are only resolved when the objects are "
+							+ "ingested with -I");
+				}
+			}
+			files.addAll(listed);
+		}
+		return new ReplayDriver(repository, properties.getProperty(CommandlineInterface.PROPERTY_INGEST_HANDLE),
+				files, Integer.parseInt(properties.getProperty(CommandlineInterface.PROPERTY_REPLAY_CONCURRENCY,
+						String.valueOf(DEFAULT_CONCURRENCY)).trim()), Double.parseDouble(properties.getProperty(
+						CommandlineInterface.PROPERTY_REPLAY_RATE, "0").trim()), Double.parseDouble(properties
+						.getProperty(CommandlineInterface.PROPERTY_REPLAY_DURATION, "0").trim()));
+	}
+
+	/**
+	 * @return the first placeholder of an object in an XML file or null if there is none
+	 */
+	static String findPlaceholder(final File file) throws IOException {
+		final Matcher matcher = PLACEHOLDER.matcher(new String(Files.readAllBytes(file.toPath()),
+				StandardCharsets.UTF_8));
+		while (matcher.find()) {
+			if (GraphIndex.NodeType.fromToken(matcher.group(1)) != null) {
+				return matcher.group();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the position of the type of a testplan file's objects in the order of ingestion
+	 */
+	static int getRank(final File manifest) {
+		final String[] suffixes = { "-ou", "-ctx", "-cm", "-i", "-cr" };
+		final String name = SHARD_POSITION.matcher(
+				manifest.getName().substring(0, manifest.getName().lastIndexOf('.'))).replaceFirst("");
+		for (int i = 0; i < suffixes.length; i++) {
+			if (name.endsWith(suffixes[i])) {
+				return i;
+			}
+		}
+		return suffixes.length;
+	}
+
+	/**
+	 * Read the XML files listed by a testplan file
+	 *
+	 * @param prefix
+	 *            the prefix of the paths in the testplan file, which is replaced by the directory
+	 * @param directory
+	 *            the directory containing the XML files
+	 */
+	static List<File> readManifest(final File manifest, final String prefix, final File directory)
+			throws IOException {
+		final List<File> files = new ArrayList<File>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifest),
+				StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().length() == 0) {
+					continue;
+				}
+				String path = ManifestFormat.ofLine(line).parsePath(line);
+				if (path.endsWith(".gz")) {
+					throw new IOException("Unable to replay " + manifest + ", compressed files are not supported");
+				}
+				if (path.startsWith(prefix)) {
+					path = path.substring(prefix.length());
+				}
+				files.add(new File(directory, path));
+			}
+		} finally {
+			reader.close();
+		}
+		return files;
+	}
+
+	/**
+	 * Send the requests and print the progress until the run is done
+	 *
+	 * @throws Exception
+	 *             if a file could not be read or a request thread failed
+	 */
+	void run() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		final List<Future<?>> threads = new ArrayList<Future<?>>();
+		startNanos = System.nanoTime();
+		try {
+			for (int i = 0; i < concurrency; i++) {
+				threads.add(executor.submit(new RequestThread()));
+			}
+			while (!AbstractGenerator.isDone(threads, PROGRESS_INTERVAL_MILLIS)) {
+				for (Future<?> thread : threads) {
+					if (thread.isDone()) {
+						// fail fast, the other threads are cancelled
+						AbstractGenerator.getResult(thread);
+					}
+				}
+				printProgress(false);
+			}
+			endNanos = System.nanoTime();
+			printProgress(true);
+			for (Future<?> thread : threads) {
+				AbstractGenerator.getResult(thread);
+			}
+		} finally {
+			for (Future<?> thread : threads) {
+				thread.cancel(true);
+			}
+			executor.shutdownNow();
+		}
+	}
+
+	private void printProgress(final boolean lineBreak) {
+		final long done = numDone.get();
+		final double elapsed = (System.nanoTime() - startNanos) / 1e9d;
+		final String status = String.format(Locale.ENGLISH, "%.0f requests/s  %d errors  p99 %.2f ms", elapsed > 0
+				? done / elapsed : 0d, numErrors.get(), responseTimes.getValueAtPercentile(99) / 1e6d);
+		if (numRequests == Long.MAX_VALUE) {
+			ProgressBar.printProgressCount(done, lineBreak, status);
+		} else {
+			ProgressBar.printProgressBar(lineBreak ? 100 : (int) (100d * done / numRequests), lineBreak, status);
+		}
+	}
+
+	/**
+	 * @return the times from the scheduled start of the requests until their responses have been read, which are the
+	 *         service times in the closed loop mode
+	 */
+	LatencyHistogram getResponseTimes() {
+		return responseTimes;
+	}
+
+	/**
+	 * @return the times from sending the requests until their responses have been read
+	 */
+	LatencyHistogram getServiceTimes() {
+		return serviceTimes;
+	}
+
+	long getNumRequests() {
+		return numDone.get();
+	}
+
+	/**
+	 * @return the number of requests which failed or have not been answered with success
+	 */
+	long getNumErrors() {
+		return numErrors.get();
+	}
+
+	/**
+	 * @return the throughput of the run and the distribution of the response and the service times in milliseconds
+	 */
+	String getReport() {
+		final double elapsed = ((endNanos > 0 ? endNanos : System.nanoTime()) - startNanos) / 1e9d;
+		final long done = numDone.get();
+		final StringBuilder report = new StringBuilder();
+		report.append(String.format(Locale.ENGLISH, "%d requests in %.1f s, %.0f requests/s, %.1f MB/s, %d errors, ",
+				done, elapsed, elapsed > 0 ? done / elapsed : 0d, elapsed > 0 ? bytesSent.get() / elapsed
+						/ (1024d * 1024d) : 0d, numErrors.get()));
+		if (rate > 0) {
+			report.append(String.format(Locale.ENGLISH, "fixed rate of %.0f requests/s", rate));
+		} else {
+			report.append("closed loop");
+		}
+		report.append(String.format(Locale.ENGLISH, " with %d threads%n", concurrency));
+		if (firstError != null) {
+			report.append("first error: ").append(firstError).append(String.format("%n"));
+		}
+		report.append(String.format(Locale.ENGLISH, "%10s %14s %14s%n", "percentile", "response ms", "service ms"));
+		for (double percentile : PERCENTILES) {
+			report.append(String.format(Locale.ENGLISH, "%10.2f %14.3f %14.3f%n", percentile, responseTimes
+					.getValueAtPercentile(percentile) / 1e6d, serviceTimes.getValueAtPercentile(percentile) / 1e6d));
+		}
+		report.append(String.format(Locale.ENGLISH, "%10s %14.3f %14.3f%n", "mean", responseTimes.getMean() / 1e6d,
+				serviceTimes.getMean() / 1e6d));
+		return report.toString();
+	}
+
+	/**
+	 * Takes the next request of the run until all requests have been sent or the duration is over
+	 */
+	private final class RequestThread implements Callable<Void> {
+		public Void call() throws Exception {
+			long request;
+			while ((request = nextRequest.getAndIncrement()) < numRequests) {
+				long scheduled = 0;
+				if (rate > 0) {
+					scheduled = startNanos + (long) (request * 1e9d / rate);
+					long wait;
+					while ((wait = scheduled - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(wait);
+						if (Thread.interrupted()) {
+							throw new InterruptedException();
+						}
+					}
+				} else if (durationNanos > 0 && System.nanoTime() - startNanos >= durationNanos) {
+					break;
+				}
+				send((int) (request % files.length), scheduled);
+			}
+			return null;
+		}
+
+		private void send(final int entry, final long scheduled) throws IOException {
+			final byte[] xml = Files.readAllBytes(files[entry].toPath());
+			final long start = System.nanoTime();
+			String error = null;
+			try {
+				final Ingester.Response response = Ingester.put(new URL(repository + types[entry].getCreatePath()), xml,
+						handle);
+				if (!response.isSuccessful()) {
+					error = files[entry].getName() + " was answered with " + response + ": "
+							+ response.getBody().substring(0, Math.min(200, response.getBody().length()));
+				}
+			} catch (IOException e) {
+				error = files[entry].getName() + " failed: " + e.getMessage();
+			}
+			final long end = System.nanoTime();
+			serviceTimes.record(end - start);
+			responseTimes.record(end - (rate > 0 ? scheduled : start));
+			if (error != null) {
+				if (numErrors.incrementAndGet() == 1) {
+					firstError = error;
+				}
+			} else {
+				bytesSent.addAndGet(xml.length);
+			}
+			numDone.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A future without a task of its own, it is completed by {@link #set(Object)} or {@link #setException(Throwable)}
+ */
+final class SettableFuture<V> extends FutureTask<V> {
+	SettableFuture() {
+		super(new Callable<V>() {
+			public V call() {
+				throw new UnsupportedOperationException("The future is completed by set or setException");
+			}
+		});
+	}
+
+	@Override
+	protected void set(final V value) {
+		super.set(value);
+	}
+
+	@Override
+	protected void setException(final Throwable t) {
+		super.setException(t);
+	}
+}
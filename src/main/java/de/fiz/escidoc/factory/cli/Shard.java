@@ -0,0 +1,105 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * One of a number of equally sized slices of a generator's object index range. Machines sharing no state can generate
+ * a dataset together by running the same settings with a different shard index each: every shard generates the
+ * contiguous index range <code>[numObjects * index / count, numObjects * (index + 1) / count)</code> and writes its own
+ * CSV file, so concatenating the CSV files in the order of the shard indices yields the CSV file of the whole dataset
+ */
+final class Shard {
+	static final Shard ALL = new Shard(0, 1);
+
+	private final int index;
+	private final int count;
+
+	Shard(final int index, final int count) {
+		if (count < 1 || index < 0 || index >= count) {
+			throw new IllegalArgumentException("Invalid shard " + index + "/" + count);
+		}
+		this.index = index;
+		this.count = count;
+	}
+
+	/**
+	 * Parse a shard given as <code>&lt;index&gt;/&lt;count&gt;</code>
+	 *
+	 * @param shard
+	 *            the shard's string representation
+	 * @return the shard
+	 * @throws IllegalArgumentException
+	 *             if the string is not a valid shard
+	 */
+	static Shard parse(final String shard) {
+		final int slash = shard.indexOf('/');
+		if (slash < 0) {
+			throw new IllegalArgumentException("Invalid shard " + shard);
+		}
+		return new Shard(Integer.parseInt(shard.substring(0, slash).trim()), Integer.parseInt(shard.substring(
+				slash + 1).trim()));
+	}
+
+	/**
+	 * @return the shard set in the properties or {@link #ALL} if the objects are not split
+	 */
+	static Shard fromProperties(final Properties properties) {
+		final String count = properties.getProperty(CommandlineInterface.PROPERTY_SHARD_COUNT);
+		if (count == null || count.length() == 0) {
+			return ALL;
+		}
+		return new Shard(Integer.parseInt(properties.getProperty(CommandlineInterface.PROPERTY_SHARD_INDEX, "0")),
+				Integer.parseInt(count));
+	}
+
+	/**
+	 * @return the index of the first object of this shard
+	 */
+	int getFirst(final int numObjects) {
+		return (int) ((long) numObjects * index / count);
+	}
+
+	/**
+	 * @return the index after the last object of this shard
+	 */
+	int getEnd(final int numObjects) {
+		return (int) ((long) numObjects * (index + 1) / count);
+	}
+
+	/**
+	 * Get the CSV file of this shard. The shard's position is appended to the name of the result file, so the files of
+	 * all shards sort in the order they have to be concatenated in
+	 *
+	 * @param resultFile
+	 *            the CSV file of the whole dataset
+	 * @return the CSV file of this shard
+	 */
+	File getResultFile(final File resultFile) {
+		if (count == 1) {
+			return resultFile;
+		}
+		final String name = resultFile.getName();
+		final int dot = name.lastIndexOf('.');
+		final String position = String.format("-%05d-of-%05d", index, count);
+		final String shardName = dot < 0 ? name + position : name.substring(0, dot) + position + name.substring(dot);
+		return new File(resultFile.getParentFile(), shardName);
+	}
+
+	int getIndex() {
+		return index;
+	}
+
+	int getCount() {
+		return count;
+	}
+
+	boolean isSplit() {
+		return count > 1;
+	}
+
+	@Override
+	public String toString() {
+		return index + "/" + count;
+	}
+}
@@ -0,0 +1,161 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded HTTP server imitating the create endpoints of an eSciDoc repository, so that ingest runs can be tested
+ * and benchmarked offline. A PUT of an object's XML to one of the endpoints is answered with the same XML whose root
+ * element carries the new object's <code>objid</code> and <code>xlink:href</code>. Objects still containing
+ * placeholder IDs are rejected. The server keeps nothing but counters, optionally every request is delayed to
+ * simulate the latency of a real repository
+ */
+final class StubRepositoryServer {
+	private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+	private static final String XLINK_NAMESPACE = "xmlns:xlink=\"http://www.w3.org/1999/xlink\"";
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final long latencyMillis;
+	private final AtomicLong nextId = new AtomicLong(1);
+	private final AtomicLong numRequests = new AtomicLong();
+	private final AtomicLong numRejected = new AtomicLong();
+
+	/**
+	 * @param port
+	 *            the port to listen on, 0 for any free port
+	 * @param numThreads
+	 *            the number of threads serving the requests
+	 * @param latencyMillis
+	 *            the delay of every request
+	 */
+	StubRepositoryServer(final int port, final int numThreads, final long latencyMillis) throws IOException {
+		this.latencyMillis = latencyMillis;
+		enableNoDelay();
+		this.server = HttpServer.create(new InetSocketAddress(port), 256);
+		this.executor = Executors.newFixedThreadPool(numThreads);
+		server.setExecutor(executor);
+		for (GraphIndex.NodeType type : GraphIndex.NodeType.values()) {
+			final String path = type.getCreatePath();
+			server.createContext(path, new CreateHandler(path));
+		}
+	}
+
+	/**
+	 * Enable TCP_NODELAY for the embedded servers unless it has been configured. Without it every response waits for
+	 * the delayed ACK of the client. The setting is read once when the first server is created
+	 */
+	static void enableNoDelay() {
+		if (System.getProperty(NODELAY_PROPERTY) == null) {
+			System.setProperty(NODELAY_PROPERTY, "true");
+		}
+	}
+
+	void start() {
+		server.start();
+	}
+
+	void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the URL of the repository served by this server
+	 */
+	URL getUrl() throws IOException {
+		return new URL("http://localhost:" + server.getAddress().getPort());
+	}
+
+	long getNumRequests() {
+		return numRequests.get();
+	}
+
+	/**
+	 * @return the number of requests which have been rejected
+	 */
+	long getNumRejected() {
+		return numRejected.get();
+	}
+
+	/**
+	 * Insert the ID attributes into the root element of a document
+	 */
+	static String addId(final String xml, final String id, final String href) {
+		final int root = Ingester.indexOfRootElement(xml);
+		if (root < 0) {
+			throw new IllegalArgumentException("The document has no root element");
+		}
+		int nameEnd = root + 1;
+		while (nameEnd < xml.length() && " \t\r\n/>".indexOf(xml.charAt(nameEnd)) < 0) {
+			nameEnd++;
+		}
+		final StringBuilder attributes = new StringBuilder(" objid=\"").append(id).append("\" xlink:href=\"").append(
+				href).append('"');
+		if (!xml.contains(XLINK_NAMESPACE)) {
+			attributes.append(' ').append(XLINK_NAMESPACE);
+		}
+		return xml.substring(0, nameEnd) + attributes + xml.substring(nameEnd);
+	}
+
+	private final class CreateHandler implements HttpHandler {
+		private final String path;
+
+		private CreateHandler(final String path) {
+			this.path = path;
+		}
+
+		public void handle(final HttpExchange exchange) throws IOException {
+			try {
+				numRequests.incrementAndGet();
+				final String xml = new String(IOUtils.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8);
+				if (latencyMillis > 0) {
+					Thread.sleep(latencyMillis);
+				}
+				if (!"PUT".equals(exchange.getRequestMethod())) {
+					reject(exchange, 405, "Objects are created by PUT");
+				} else if (!exchange.getRequestURI().getPath().equals(path)) {
+					reject(exchange, 404, "Not found");
+				} else if (xml.contains("${")) {
+					reject(exchange, 409, "The object references an unresolved placeholder");
+				} else {
+					final String id = "escidoc:" + nextId.getAndIncrement();
+					send(exchange, 200, addId(xml, id, path + "/" + id));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (IllegalArgumentException e) {
+				reject(exchange, 400, e.getMessage());
+			} finally {
+				exchange.close();
+			}
+		}
+
+		private void reject(final HttpExchange exchange, final int status, final String message) throws IOException {
+			numRejected.incrementAndGet();
+			send(exchange, status, message);
+		}
+	}
+
+	static void send(final HttpExchange exchange, final int status, final String body) throws IOException {
+		final byte[] data = body.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", status == 200 ? "text/xml; charset=UTF-8"
+				: "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, data.length);
+		final OutputStream out = exchange.getResponseBody();
+		out.write(data);
+		out.close();
+	}
+}
@@ -0,0 +1,212 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import de.fiz.escidoc.factory.FastRandom;
+import de.fiz.escidoc.factory.SizeDistribution;
+
+/**
+ * An embedded HTTP server generating the contents of items on the fly, so that datasets of any logical size can be
+ * ingested without storing any content. The path <code>/content/&lt;seed&gt;/&lt;size&gt;</code> is answered with
+ * the bytes a {@link de.fiz.escidoc.factory.RandomContentWriter} writes for the seed and the size. Since the
+ * generator can skip to any position in constant time, single byte ranges are served without generating the preceding
+ * bytes. Every thread generates into a buffer of its own which is written to the response directly, nothing is
+ * allocated per request
+ */
+final class VirtualContentServer {
+	static final String CONTENT_PATH = "/content/";
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final AtomicLong numRequests = new AtomicLong();
+	private final AtomicLong bytesSent = new AtomicLong();
+	private final ThreadLocal<ByteBuffer> buffers = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			// a fixed byte order, so the content equals the content of the files
+			return ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	};
+
+	/**
+	 * @param port
+	 *            the port to listen on, 0 for any free port
+	 * @param numThreads
+	 *            the number of threads serving the requests
+	 */
+	VirtualContentServer(final int port, final int numThreads) throws IOException {
+		StubRepositoryServer.enableNoDelay();
+		this.server = HttpServer.create(new InetSocketAddress(port), 256);
+		this.executor = Executors.newFixedThreadPool(numThreads);
+		server.setExecutor(executor);
+		server.createContext(CONTENT_PATH, new ContentHandler());
+	}
+
+	/**
+	 * @return the path of the content with the given seed and size, relative to the server's URL
+	 */
+	static String getPath(final long seed, final long size) {
+		return CONTENT_PATH + seed + "/" + size;
+	}
+
+	void start() {
+		server.start();
+	}
+
+	void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @return the URL of the server
+	 */
+	URL getUrl() throws IOException {
+		return new URL("http://localhost:" + server.getAddress().getPort());
+	}
+
+	long getNumRequests() {
+		return numRequests.get();
+	}
+
+	long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	/**
+	 * Parse the value of a <code>Range</code> header
+	 *
+	 * @param range
+	 *            the header or null
+	 * @param size
+	 *            the size of the content
+	 * @return the first and the last position of the requested range, null to send the whole content, which is done
+	 *         for missing headers, invalid and multiple ranges, or an empty array if the range can not be satisfied
+	 */
+	static long[] parseRange(final String range, final long size) {
+		if (range == null || !range.trim().startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return null;
+		}
+		final String spec = range.trim().substring("bytes=".length()).trim();
+		final int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return null;
+		}
+		try {
+			final String first = spec.substring(0, dash).trim();
+			final String last = spec.substring(dash + 1).trim();
+			if (first.length() == 0) {
+				// the last n bytes
+				final long suffix = Long.parseLong(last);
+				return suffix <= 0 || size == 0 ? new long[0] : new long[] { Math.max(0, size - suffix), size - 1 };
+			}
+			final long start = Long.parseLong(first);
+			if (last.length() > 0 && Long.parseLong(last) < start) {
+				// an invalid range is ignored
+				return null;
+			}
+			final long end = last.length() == 0 ? size - 1 : Math.min(size - 1, Long.parseLong(last));
+			return start >= size ? new long[0] : new long[] { start, end };
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Write a part of the content with the given seed
+	 *
+	 * @param start
+	 *            the position of the first byte
+	 * @param length
+	 *            the number of bytes
+	 * @param buffer
+	 *            a buffer with a backing array whose capacity is a multiple of 8
+	 */
+	static void write(final OutputStream out, final long seed, final long start, final long length,
+			final ByteBuffer buffer) throws IOException {
+		final FastRandom random = new FastRandom(seed);
+		// the content is a sequence of longs, every long takes 8 bytes
+		random.skip(start >>> 3);
+		int skip = (int) (start & 7);
+		long remaining = length;
+		while (remaining > 0) {
+			buffer.clear();
+			final long needed = (remaining + skip + 7) & ~7L;
+			if (needed < buffer.capacity()) {
+				buffer.limit((int) needed);
+			}
+			random.nextBytes(buffer);
+			final int count = (int) Math.min(buffer.position() - skip, remaining);
+			out.write(buffer.array(), skip, count);
+			remaining -= count;
+			skip = 0;
+		}
+	}
+
+	private final class ContentHandler implements HttpHandler {
+		public void handle(final HttpExchange exchange) throws IOException {
+			try {
+				numRequests.incrementAndGet();
+				final boolean head = "HEAD".equals(exchange.getRequestMethod());
+				if (!head && !"GET".equals(exchange.getRequestMethod())) {
+					StubRepositoryServer.send(exchange, 405, "Contents are read by GET");
+					return;
+				}
+				final String[] segments = exchange.getRequestURI().getPath().substring(CONTENT_PATH.length())
+						.split("/");
+				final long seed;
+				final long size;
+				try {
+					seed = Long.parseLong(segments[0]);
+					size = SizeDistribution.parseValue(segments.length > 1 ? segments[1] : "");
+				} catch (IllegalArgumentException e) {
+					StubRepositoryServer.send(exchange, 404, "Not found, expected " + CONTENT_PATH
+							+ "<seed>/<size>");
+					return;
+				}
+				exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+				exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+				final long[] range = parseRange(exchange.getRequestHeaders().getFirst("Range"), size);
+				if (range != null && range.length == 0) {
+					exchange.getResponseHeaders().set("Content-Range", "bytes */" + size);
+					exchange.sendResponseHeaders(416, -1);
+					return;
+				}
+				final long start = range == null ? 0 : range[0];
+				final long length = range == null ? size : range[1] - range[0] + 1;
+				final int status = range == null ? 200 : 206;
+				if (range != null) {
+					exchange.getResponseHeaders().set("Content-Range", "bytes " + range[0] + "-" + range[1] + "/"
+							+ size);
+				}
+				if (head) {
+					// the server sends no body for HEAD requests, so the length is set by hand
+					exchange.getResponseHeaders().set("Content-Length", String.valueOf(length));
+					exchange.sendResponseHeaders(status, -1);
+					return;
+				}
+				// a length of 0 would select a chunked response
+				exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+				final OutputStream out = exchange.getResponseBody();
+				write(out, seed, start, length, buffers.get());
+				out.close();
+				bytesSent.addAndGet(length);
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+}
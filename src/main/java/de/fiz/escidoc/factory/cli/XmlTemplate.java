@@ -0,0 +1,136 @@
+package de.fiz.escidoc.factory.cli;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compiled XML document with variable slots. A template is compiled from the marshalled XML of a prototype object
+ * whose variable values have been replaced by unique markers: the XML between the markers is encoded once, and a
+ * document is rendered by copying the encoded segments and the UTF-8 encoded slot values into a buffer. The values
+ * are inserted verbatim, so callers have to make sure that they do not need to be escaped, see
+ * {@link #isVerbatim(String)}. Instances are immutable and can be shared between threads
+ */
+final class XmlTemplate {
+	private final byte[][] segments;
+	private final int[] slots;
+	private final int constantLength;
+
+	private XmlTemplate(final byte[][] segments, final int[] slots) {
+		this.segments = segments;
+		this.slots = slots;
+		int length = 0;
+		for (byte[] segment : segments) {
+			length += segment.length;
+		}
+		this.constantLength = length;
+	}
+
+	/**
+	 * Compile a template
+	 *
+	 * @param prototype
+	 *            the XML of the prototype object
+	 * @param markers
+	 *            the markers of the slots in the prototype, a marker must not contain another one
+	 * @return the template
+	 */
+	static XmlTemplate compile(final String prototype, final String[] markers) {
+		final List<byte[]> segments = new ArrayList<byte[]>();
+		final List<Integer> slots = new ArrayList<Integer>();
+		int position = 0;
+		while (true) {
+			// find the next occurrence of any marker
+			int next = -1;
+			int slot = -1;
+			for (int i = 0; i < markers.length; i++) {
+				final int found = prototype.indexOf(markers[i], position);
+				if (found >= 0 && (next < 0 || found < next)) {
+					next = found;
+					slot = i;
+				}
+			}
+			if (next < 0) {
+				segments.add(encode(prototype.substring(position)));
+				break;
+			}
+			segments.add(encode(prototype.substring(position, next)));
+			slots.add(slot);
+			position = next + markers[slot].length();
+		}
+		final int[] slotArray = new int[slots.size()];
+		for (int i = 0; i < slotArray.length; i++) {
+			slotArray[i] = slots.get(i);
+		}
+		return new XmlTemplate(segments.toArray(new byte[segments.size()][]), slotArray);
+	}
+
+	/**
+	 * @param value
+	 *            a slot value
+	 * @return true if the value can be inserted into any text or attribute of a document without escaping
+	 */
+	static boolean isVerbatim(final String value) {
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (c < 0x20 || c == '&' || c == '<' || c == '>' || c == '"' || c == '\'') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Render a document into a buffer
+	 *
+	 * @param values
+	 *            the values of the slots
+	 * @param buffer
+	 *            the buffer to reuse, may be null
+	 * @return the flipped buffer containing the document, which is a new buffer if the given one was too small
+	 */
+	ByteBuffer render(final String[] values, final ByteBuffer buffer) {
+		int capacity = constantLength;
+		for (int slot : slots) {
+			// at most three bytes per UTF-16 char
+			capacity += values[slot].length() * 3;
+		}
+		ByteBuffer out = buffer;
+		if (out == null || out.capacity() < capacity) {
+			out = ByteBuffer.allocateDirect(Math.max(capacity, out == null ? 0 : out.capacity() * 2));
+		}
+		out.clear();
+		for (int i = 0; i < slots.length; i++) {
+			out.put(segments[i]);
+			putUtf8(out, values[slots[i]]);
+		}
+		out.put(segments[slots.length]);
+		out.flip();
+		return out;
+	}
+
+	/**
+	 * @return the number of slot occurrences in the document
+	 */
+	int getNumOccurrences() {
+		return slots.length;
+	}
+
+	private static void putUtf8(final ByteBuffer out, final String value) {
+		final int length = value.length();
+		for (int i = 0; i < length; i++) {
+			final char c = value.charAt(i);
+			if (c >= 0x80) {
+				// not ASCII, encode the rest by the JRE
+				out.put(encode(value.substring(i)));
+				return;
+			}
+			out.put((byte) c);
+		}
+	}
+
+	private static byte[] encode(final String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,39 @@
+package de.fiz.escidoc.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class FastRandomTest {
+
+	@Test
+	public void testDerive() throws Exception {
+		assertEquals(FastRandom.derive(42, "item-", 7), FastRandom.derive(42, "item-", 7));
+		assertFalse(FastRandom.derive(42, "item-", 7) == FastRandom.derive(42, "item-", 8));
+		assertFalse(FastRandom.derive(42, "item-", 7) == FastRandom.derive(43, "item-", 7));
+		assertFalse(FastRandom.derive(42, "item-", 7) == FastRandom.derive(42, "context-", 7));
+	}
+
+	@Test
+	public void testSkip() throws Exception {
+		FastRandom drawn = new FastRandom(42);
+		for (int i = 0; i < 1000; i++) {
+			drawn.nextLong();
+		}
+		FastRandom skipped = new FastRandom(42);
+		skipped.skip(1000);
+		assertEquals(drawn.nextLong(), skipped.nextLong());
+	}
+
+	@Test
+	public void testNextUUID() throws Exception {
+		UUID uuid = new FastRandom(42).nextUUID();
+		assertEquals(4, uuid.version());
+		assertEquals(2, uuid.variant());
+		assertEquals(uuid, new FastRandom(42).nextUUID());
+		assertEquals(uuid, UUID.fromString(uuid.toString()));
+	}
+}
@@ -0,0 +1,46 @@
+package de.fiz.escidoc.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+public class MetadataRecordTemplatesTest {
+
+	@Test
+	public void testContentEqualsFreshlyBuiltContent() throws Exception {
+		Element content = MetadataRecordTemplates.getInstance().createContent("test-object", "item");
+		assertTrue(content.isEqualNode(buildContent("test-object", "item")));
+	}
+
+	@Test
+	public void testTemplatesAreNotShared() throws Exception {
+		MetadataRecordTemplates templates = MetadataRecordTemplates.getInstance();
+		Element first = templates.createContent("first", "ou");
+		Element second = templates.createContent("second", "ou");
+		assertNotSame(first.getOwnerDocument(), second.getOwnerDocument());
+		assertEquals("first", first.getTextContent());
+		assertEquals("second", second.getTextContent());
+		assertTrue(second.isEqualNode(buildContent("second", "ou")));
+	}
+
+	/* the way the metadata records have been built before the templates were cached */
+	private static Element buildContent(String title, String nameSpace) throws Exception {
+		final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		factory.setCoalescing(true);
+		factory.setValidating(true);
+		final Document doc = factory.newDocumentBuilder().newDocument();
+		final Element mdRecordContent = doc.createElementNS(null, nameSpace);
+		final Element titleElmt = doc.createElementNS(MetadataRecordTemplates.DC_NAMESPACE, "title");
+		titleElmt.setPrefix("dc");
+		titleElmt.setTextContent(title);
+		mdRecordContent.appendChild(titleElmt);
+		return mdRecordContent;
+	}
+}
@@ -0,0 +1,84 @@
+package de.fiz.escidoc.factory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+public class RandomContentWriterTest {
+
+	@Test
+	public void testWriteSizes() throws Exception {
+		RandomContentWriter writer = new RandomContentWriter();
+		long[] sizes = new long[] { 0, 1, 7, 8, 1023, RandomContentWriter.BUFFER_SIZE,
+				RandomContentWriter.BUFFER_SIZE * 2 + 13 };
+		for (long size : sizes) {
+			ByteArrayOutputStream sink = new ByteArrayOutputStream();
+			writer.write(Channels.newChannel(sink), size);
+			assertEquals(size, sink.size());
+		}
+	}
+
+	@Test
+	public void testWriteFile() throws Exception {
+		File dir = new File(System.getProperty("java.io.tmpdir"));
+		File f = RandomContentWriter.getInstance().writeFile(dir, "random-content-test-", 3 * 1024 * 1024 + 5);
+		try {
+			assertEquals(3 * 1024 * 1024 + 5, f.length());
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testSparseFile() throws Exception {
+		File f = File.createTempFile("random-content-test-", ".content", new File(System.getProperty("java.io.tmpdir")));
+		try {
+			RandomContentWriter writer = new RandomContentWriter(new FastRandom(42));
+			writer.setFileMode(RandomContentWriter.FileMode.SPARSE);
+			writer.setSparsePattern(16, 1000);
+			writer.write(f, 2010);
+			byte[] data = Files.readAllBytes(f.toPath());
+			assertEquals(2010, data.length);
+			for (int i = 0; i < data.length; i++) {
+				if (i % 1000 >= 16) {
+					assertEquals(0, data[i]);
+				}
+			}
+			assertFalse(Arrays.equals(new byte[16], Arrays.copyOfRange(data, 1000, 1016)));
+			assertFalse(Arrays.equals(new byte[10], Arrays.copyOfRange(data, 2000, 2010)));
+		} finally {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testSeededContentIsReproducible() throws Exception {
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		new RandomContentWriter(new FastRandom(42)).write(Channels.newChannel(first), 100000);
+		new RandomContentWriter(new FastRandom(42)).write(Channels.newChannel(second), 100000);
+		assertArrayEquals(first.toByteArray(), second.toByteArray());
+		byte[] zeros = new byte[100000];
+		assertFalse(Arrays.equals(zeros, first.toByteArray()));
+	}
+
+	@Test
+	public void testChecksumMatchesWrittenData() throws Exception {
+		RandomContentWriter writer = new RandomContentWriter();
+		long size = RandomContentWriter.BUFFER_SIZE + 77;
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		writer.write(Channels.newChannel(sink), size, 4711);
+		CRC32 crc = new CRC32();
+		crc.update(sink.toByteArray());
+		assertEquals(crc.getValue(), writer.checksum(size, 4711));
+	}
+}
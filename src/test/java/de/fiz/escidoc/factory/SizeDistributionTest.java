@@ -0,0 +1,105 @@
+package de.fiz.escidoc.factory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class SizeDistributionTest {
+
+	@Test
+	public void testFixed() throws Exception {
+		FastRandom random = new FastRandom(1);
+		assertEquals(1024, SizeDistribution.parse("1024").sample(random));
+		assertEquals(7, SizeDistribution.parse("fixed:7").sample(random));
+	}
+
+	@Test
+	public void testUniform() throws Exception {
+		FastRandom random = new FastRandom(1);
+		SizeDistribution dist = SizeDistribution.parse("uniform:3,5");
+		boolean[] seen = new boolean[6];
+		for (int i = 0; i < 1000; i++) {
+			long value = dist.sample(random);
+			assertTrue(value >= 3 && value <= 5);
+			seen[(int) value] = true;
+		}
+		assertTrue(seen[3] && seen[4] && seen[5]);
+	}
+
+	@Test
+	public void testLogNormal() throws Exception {
+		FastRandom random = new FastRandom(1);
+		SizeDistribution dist = SizeDistribution.parse("lognormal:10000,1.5,1000000");
+		long[] values = new long[10001];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = dist.sample(random);
+			assertTrue(values[i] <= 1000000);
+		}
+		Arrays.sort(values);
+		// the median of the samples is close to the median of the distribution
+		assertEquals(10000d, values[5000], 1000d);
+	}
+
+	@Test
+	public void testHistogram() throws Exception {
+		File file = File.createTempFile("size-distribution-test-", ".txt");
+		try {
+			FileUtils.writeStringToFile(file, "# size weight\n100 1\n\n200 0\n1000 2000 3\n");
+			SizeDistribution dist = SizeDistribution.parse("histogram:" + file.getAbsolutePath());
+			FastRandom random = new FastRandom(1);
+			int small = 0;
+			for (int i = 0; i < 4000; i++) {
+				long value = dist.sample(random);
+				assertTrue(value == 100 || (value >= 1000 && value <= 2000));
+				if (value == 100) {
+					small++;
+				}
+			}
+			assertEquals(1000d, small, 150d);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testZipf() throws Exception {
+		FastRandom random = new FastRandom(1);
+		SizeDistribution dist = SizeDistribution.parse("zipf:100,1");
+		int[] counts = new int[101];
+		for (int i = 0; i < 100000; i++) {
+			long value = dist.sample(random);
+			assertTrue(value >= 1 && value <= 100);
+			counts[(int) value]++;
+		}
+		// rank 1 is twice as likely as rank 2 and ten times as likely as rank 10
+		assertEquals(2d, (double) counts[1] / counts[2], 0.2d);
+		assertEquals(10d, (double) counts[1] / counts[10], 1.5d);
+	}
+
+	@Test
+	public void testUnits() throws Exception {
+		assertEquals(512, SizeDistribution.parseValue("512"));
+		assertEquals(512, SizeDistribution.parseValue("512B"));
+		assertEquals(512 * 1024, SizeDistribution.parseValue("512k"));
+		assertEquals(10L * 1024 * 1024, SizeDistribution.parseValue("10 MB"));
+		assertEquals(50L * 1024 * 1024 * 1024, SizeDistribution.parseValue("50GiB"));
+		assertEquals(3L * 1024 * 1024 * 1024 / 2, SizeDistribution.parseValue("1.5G"));
+		assertEquals(2L * 1024 * 1024 * 1024 * 1024, SizeDistribution.parseValue("2t"));
+		assertEquals(1024 * 1024, SizeDistribution.parse("lognormal:1M,0").sample(new FastRandom(1)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownUnit() throws Exception {
+		SizeDistribution.parseValue("10 apples");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalid() throws Exception {
+		SizeDistribution.parse("uniform:5,3");
+	}
+}
@@ -0,0 +1,116 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import de.escidoc.core.resources.om.item.Item;
+import de.fiz.escidoc.factory.FastRandom;
+import de.fiz.escidoc.factory.RandomContentWriter;
+
+public class ArchiveTargetTest {
+
+	@Test
+	public void testWriteEntries() throws Exception {
+		File archive = File.createTempFile("archive-target-test-", ".jar");
+		ZipFile zip = null;
+		try {
+			ArchiveTarget target = new ArchiveTarget(archive);
+			String contentName = target.createName("item-", ".content");
+			target.writeRandomContent(contentName, new RandomContentWriter(), 3 * 1024 * 1024 + 3);
+			String xmlName = target.createName("item-", ".xml");
+			WritableByteChannel channel = target.openFile(xmlName);
+			new MarshallingWriter<Item>(Item.class).write("<item/>", channel);
+			channel.close();
+			target.close();
+
+			zip = new ZipFile(archive);
+			ZipEntry content = zip.getEntry(contentName);
+			assertNotNull(content);
+			assertEquals(ZipEntry.STORED, content.getMethod());
+			assertEquals(3 * 1024 * 1024 + 3, content.getSize());
+			// reading the whole entry verifies the stored checksum
+			assertEquals(3 * 1024 * 1024 + 3, IOUtils.toByteArray(zip.getInputStream(content)).length);
+			assertEquals("<item/>", IOUtils.toString(zip.getInputStream(zip.getEntry(xmlName)), "UTF-8"));
+		} finally {
+			if (zip != null) {
+				zip.close();
+			}
+			archive.delete();
+		}
+	}
+
+	@Test
+	public void testRandomContentMatchesDirectory() throws Exception {
+		File archive = File.createTempFile("archive-target-test-", ".jar");
+		File directory = new File(archive.getPath() + ".d");
+		directory.mkdir();
+		ZipFile zip = null;
+		try {
+			RandomContentWriter archiveWriter = new RandomContentWriter(new FastRandom(4711));
+			RandomContentWriter directoryWriter = new RandomContentWriter(new FastRandom(4711));
+			ArchiveTarget target = new ArchiveTarget(archive);
+			DirectoryTarget directoryTarget = new DirectoryTarget(directory);
+			for (int i = 0; i < 2; i++) {
+				target.writeRandomContent("item-" + i + ".content", archiveWriter, 100 * 1024 + i);
+				directoryTarget.writeRandomContent("item-" + i + ".content", directoryWriter, 100 * 1024 + i);
+			}
+			target.close();
+
+			// both targets write the same data and leave the writers' randoms in the same state
+			zip = new ZipFile(archive);
+			for (int i = 0; i < 2; i++) {
+				File file = new File(directory, "item-" + i + ".content");
+				assertArrayEquals(FileUtils.readFileToByteArray(file), IOUtils.toByteArray(zip.getInputStream(zip
+						.getEntry("item-" + i + ".content"))));
+			}
+			assertEquals(directoryWriter.getRandom().nextLong(), archiveWriter.getRandom().nextLong());
+		} finally {
+			if (zip != null) {
+				zip.close();
+			}
+			FileUtils.deleteQuietly(directory);
+			archive.delete();
+		}
+	}
+
+	@Test
+	public void testStageFile() throws Exception {
+		File archive = File.createTempFile("archive-target-test-", ".jar");
+		File source = File.createTempFile("archive-target-test-", ".pdf");
+		ZipFile zip = null;
+		try {
+			byte[] data = new byte[300 * 1024 + 7];
+			for (int i = 0; i < data.length; i++) {
+				data[i] = (byte) (i * 31);
+			}
+			FileOutputStream out = new FileOutputStream(source);
+			out.write(data);
+			out.close();
+			ArchiveTarget target = new ArchiveTarget(archive);
+			assertEquals(data.length, target.stageFile("item-1-input.pdf", source));
+			target.close();
+
+			zip = new ZipFile(archive);
+			ZipEntry entry = zip.getEntry("item-1-input.pdf");
+			assertEquals(ZipEntry.STORED, entry.getMethod());
+			assertArrayEquals(data, IOUtils.toByteArray(zip.getInputStream(entry)));
+		} finally {
+			if (zip != null) {
+				zip.close();
+			}
+			source.delete();
+			archive.delete();
+		}
+	}
+}
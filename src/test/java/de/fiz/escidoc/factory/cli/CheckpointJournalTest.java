@@ -0,0 +1,59 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class CheckpointJournalTest {
+
+	@Test
+	public void testResume() throws Exception {
+		File resultFile = File.createTempFile("checkpoint-test-", ".csv");
+		File journalFile = new File(resultFile.getAbsolutePath() + ".checkpoint");
+		try {
+			CheckpointJournal journal = CheckpointJournal.open(resultFile);
+			journal.done(0, new ManifestEntry("item-0.xml"));
+			journal.done(2, new ManifestEntry("item-2.xml"));
+			journal.done(1, new ManifestEntry("item-1.xml"));
+			journal.manifestFlushed(3, 150);
+			journal.done(4, new ManifestEntry("item-4.xml"));
+			journal.close();
+			// a record cut off by an interruption
+			FileUtils.writeStringToFile(journalFile, FileUtils.readFileToString(journalFile) + "D 5 item-5.x", "UTF-8");
+
+			journal = CheckpointJournal.open(resultFile);
+			assertEquals(4, journal.getNumDone());
+			assertTrue(journal.isDone(2));
+			assertFalse(journal.isDone(3));
+			assertFalse(journal.isDone(5));
+			assertEquals(3, journal.getManifestIndex());
+			assertEquals(150, journal.getManifestLength());
+			assertEquals(1, journal.getUnlisted().size());
+			assertEquals("item-4.xml", journal.getUnlisted().get(4).getName());
+			journal.done(5, new ManifestEntry("item-5.xml"));
+			journal.close();
+
+			journal = CheckpointJournal.open(resultFile);
+			assertEquals(5, journal.getNumDone());
+			assertEquals("item-5.xml", journal.getUnlisted().get(5).getName());
+			journal.done(6, new ManifestEntry("item-6.xml.gz", "item-6.xml.gz", -1, 1000, 300));
+			journal.close();
+
+			journal = CheckpointJournal.open(resultFile);
+			ManifestEntry compressed = journal.getUnlisted().get(6);
+			assertEquals("item-6.xml.gz", compressed.getName());
+			assertEquals(1000, compressed.getSize());
+			assertEquals(300, compressed.getCompressedSize());
+			assertFalse(journal.getUnlisted().get(5).isCompressed());
+			journal.close();
+		} finally {
+			resultFile.delete();
+			journalFile.delete();
+		}
+	}
+}
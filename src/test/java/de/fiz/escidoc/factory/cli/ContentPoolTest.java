@@ -0,0 +1,65 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Test;
+
+import de.fiz.escidoc.factory.FastRandom;
+import de.fiz.escidoc.factory.SizeDistribution;
+
+public class ContentPoolTest {
+
+	@Test
+	public void testSelect() throws Exception {
+		ContentPool pool = new ContentPool(10, 0.25d, 1d, SizeDistribution.fixed(100), 1L);
+		FastRandom random = new FastRandom(1);
+		int unique = 0;
+		int[] counts = new int[10];
+		for (int i = 0; i < 10000; i++) {
+			int content = pool.select(random);
+			if (content < 0) {
+				unique++;
+			} else {
+				counts[content]++;
+			}
+		}
+		assertEquals(2500, unique, 200);
+		assertTrue(counts[0] > counts[1] && counts[1] > counts[9]);
+		assertEquals("pool-3.content", ContentPool.getName(3));
+	}
+
+	@Test
+	public void testContentsAreWrittenOnce() throws Exception {
+		ContentPool pool = new ContentPool(2, 0d, 0d, SizeDistribution.fixed(100), null);
+		assertTrue(pool.claim(1));
+		assertFalse(pool.claim(1));
+		assertFalse(pool.getWrite(1).isDone());
+		pool.written(1, true);
+		assertTrue(pool.getWrite(1).isDone());
+		assertTrue(pool.claim(0));
+		pool.written(0, false);
+		try {
+			pool.getWrite(0).get();
+			fail("the failed write of the content was not reported");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test
+	public void testSeededPoolsAreEqual() throws Exception {
+		SizeDistribution sizes = SizeDistribution.uniform(1, 1000000);
+		ContentPool a = new ContentPool(100, 0d, 1d, sizes, 7L);
+		ContentPool b = new ContentPool(100, 0d, 1d, sizes, 7L);
+		for (int i = 0; i < a.getNumContents(); i++) {
+			assertEquals(a.getSize(i), b.getSize(i));
+			assertEquals(a.getSeed(i), b.getSeed(i));
+		}
+	}
+}
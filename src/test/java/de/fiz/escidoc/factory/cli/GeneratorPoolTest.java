@@ -0,0 +1,67 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class GeneratorPoolTest {
+
+	private static GeneratorPool.Task createTask(final StringBuffer log, final String name, final int numSlices) {
+		return new GeneratorPool.Task() {
+			private int slices;
+
+			public boolean runSlice(final int maxObjects) throws Exception {
+				assertEquals(GeneratorPool.SLICE_SIZE, maxObjects);
+				log.append(name);
+				return ++slices == numSlices;
+			}
+		};
+	}
+
+	@Test
+	public void testTasksTakeTurns() throws Exception {
+		GeneratorPool pool = new GeneratorPool(1);
+		StringBuffer log = new StringBuffer();
+		final CountDownLatch submitted = new CountDownLatch(1);
+		// the thread is blocked until both tasks have been queued
+		pool.submit(new GeneratorPool.Task() {
+			public boolean runSlice(final int maxObjects) throws Exception {
+				submitted.await();
+				return true;
+			}
+		});
+		Future<Void> a = pool.submit(createTask(log, "a", 3));
+		Future<Void> b = pool.submit(createTask(log, "b", 2));
+		submitted.countDown();
+		a.get(10, TimeUnit.SECONDS);
+		b.get(10, TimeUnit.SECONDS);
+		pool.shutdown();
+		assertEquals("ababa", log.toString());
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		GeneratorPool pool = new GeneratorPool(2);
+		final IOException failure = new IOException("disk full");
+		Future<Void> task = pool.submit(new GeneratorPool.Task() {
+			public boolean runSlice(final int maxObjects) throws Exception {
+				throw failure;
+			}
+		});
+		try {
+			task.get(10, TimeUnit.SECONDS);
+			fail("the failure of the task was not reported");
+		} catch (ExecutionException e) {
+			assertSame(failure, e.getCause());
+		}
+		pool.shutdown();
+	}
+}
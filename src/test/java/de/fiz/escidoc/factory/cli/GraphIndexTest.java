@@ -0,0 +1,39 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class GraphIndexTest {
+
+	@Test
+	public void testEdges() throws Exception {
+		GraphIndex index = new GraphIndex(3, 5, 2, 1000, 500, 7);
+		assertEquals(1000, index.getCount(GraphIndex.NodeType.ITEM));
+		int[] itemsPerContext = new int[5];
+		for (int i = 0; i < 1000; i++) {
+			itemsPerContext[index.getContext(i)]++;
+			assertTrue(index.getContentModel(i) < 2);
+		}
+		// the items are spread over all contexts
+		for (int count : itemsPerContext) {
+			assertTrue(count > 100);
+		}
+		for (int i = 0; i < 500; i++) {
+			assertTrue(index.getSubject(i) != index.getObject(i));
+		}
+		// the same seed creates the same graph
+		GraphIndex other = new GraphIndex(3, 5, 2, 1000, 500, 7);
+		for (int i = 0; i < 500; i++) {
+			assertEquals(index.getSubject(i), other.getSubject(i));
+			assertEquals(index.getObject(i), other.getObject(i));
+		}
+		assertEquals("${contentrelation:12}", GraphIndex.NodeType.CONTENT_RELATION.placeholder(12));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testItemsWithoutContexts() throws Exception {
+		new GraphIndex(1, 0, 1, 10, 0, 7);
+	}
+}
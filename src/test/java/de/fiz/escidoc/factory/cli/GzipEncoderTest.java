@@ -0,0 +1,42 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+public class GzipEncoderTest {
+
+	private static byte[] toArray(final ByteBuffer buffer) {
+		final byte[] data = new byte[buffer.remaining()];
+		buffer.get(data);
+		return data;
+	}
+
+	@Test
+	public void testConcatenatedMembers() throws Exception {
+		GzipEncoder encoder = new GzipEncoder(Deflater.DEFAULT_COMPRESSION);
+		byte[] first = "<item>first</item>".getBytes("UTF-8");
+		// larger than the initial buffer and not compressible
+		byte[] second = new byte[200 * 1024];
+		new Random(1).nextBytes(second);
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		stream.write(toArray(encoder.encode(first, first.length)));
+		stream.write(toArray(encoder.encode(second, second.length)));
+		encoder.end();
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		expected.write(first);
+		expected.write(second);
+		// GZIPInputStream verifies the checksums and sizes of all members
+		assertArrayEquals(expected.toByteArray(), IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(
+				stream.toByteArray()))));
+	}
+}
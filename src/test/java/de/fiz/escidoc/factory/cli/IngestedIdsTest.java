@@ -0,0 +1,37 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class IngestedIdsTest {
+
+	@Test
+	public void testPutAndGet() throws Exception {
+		IngestedIds ids = new IngestedIds();
+		ids.put(GraphIndex.NodeType.ITEM, 0, "escidoc:0");
+		ids.put(GraphIndex.NodeType.ITEM, 200000, "escidoc:123456789012");
+		// IDs not sharing the prefix of the first ID are kept as they are
+		ids.put(GraphIndex.NodeType.CONTEXT, 3, "other:5");
+		ids.put(GraphIndex.NodeType.CONTEXT, 4, "escidoc:x");
+		assertEquals("escidoc:0", ids.get(GraphIndex.NodeType.ITEM, 0));
+		assertEquals("escidoc:123456789012", ids.get(GraphIndex.NodeType.ITEM, 200000));
+		assertEquals("other:5", ids.get(GraphIndex.NodeType.CONTEXT, 3));
+		assertEquals("escidoc:x", ids.get(GraphIndex.NodeType.CONTEXT, 4));
+		assertNull(ids.get(GraphIndex.NodeType.ITEM, 1));
+		assertNull(ids.get(GraphIndex.NodeType.ITEM, 5000000));
+		assertNull(ids.get(GraphIndex.NodeType.CONTEXT, 0));
+	}
+
+	@Test
+	public void testLeadingZeros() throws Exception {
+		IngestedIds ids = new IngestedIds();
+		ids.put(GraphIndex.NodeType.ITEM, 0, "escidoc:12");
+		ids.put(GraphIndex.NodeType.ITEM, 1, "escidoc:007");
+		ids.put(GraphIndex.NodeType.ITEM, 2, "escidoc:00");
+		assertEquals("escidoc:12", ids.get(GraphIndex.NodeType.ITEM, 0));
+		assertEquals("escidoc:007", ids.get(GraphIndex.NodeType.ITEM, 1));
+		assertEquals("escidoc:00", ids.get(GraphIndex.NodeType.ITEM, 2));
+	}
+}
@@ -0,0 +1,89 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IngesterTest {
+	private File directory;
+	private StubRepositoryServer stub;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("ingest").toFile();
+		stub = new StubRepositoryServer(0, 4, 0);
+		stub.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stub.stop();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	private File write(final File dir, final String name, final String xml) throws IOException {
+		final File file = new File(dir, name);
+		Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	@Test
+	public void testPlaceholdersAreResolved() throws Exception {
+		Ingester ingester = new Ingester(stub.getUrl(), null, 4, 2);
+		// the organizational units are written to a directory of their own
+		final File ous = new File(directory, "ous");
+		ous.mkdir();
+		for (int i = 0; i < 3; i++) {
+			ingester.generated(i, "ou-" + i + ".xml", write(ous, "ou-" + i + ".xml", "<?xml version=\"1.0\"?>\n<ou/>"));
+		}
+		for (int i = 0; i < 10; i++) {
+			ingester.generated(i, "context-" + i + ".xml", write(directory, "context-" + i + ".xml",
+					"<context><ou href=\"/oum/organizational-unit/${ou:" + (i % 3) + "}\"/></context>"));
+		}
+		ingester.close();
+		assertEquals(13, stub.getNumRequests());
+		assertEquals(0, stub.getNumRejected());
+		assertEquals(10, ingester.getLatencies(GraphIndex.NodeType.CONTEXT).getCount());
+		for (int i = 0; i < 10; i++) {
+			assertNotNull(ingester.getId(GraphIndex.NodeType.CONTEXT, i));
+		}
+		assertTrue(ingester.getReport().contains("13 objects ingested"));
+	}
+
+	@Test
+	public void testUnresolvablePlaceholder() throws Exception {
+		Ingester ingester = new Ingester(stub.getUrl(), null, 1, 1);
+		ingester.setResolveTimeout(100);
+		final File item = write(directory, "item-0.xml", "<item><context href=\"${context:7}\"/></item>");
+		try {
+			ingester.generated(0, "item-0.xml", item);
+			ingester.close();
+			fail("the placeholder of a missing object was not detected");
+		} catch (IOException e) {
+			// the referenced context is never ingested, so the object is not sent
+			assertTrue(e.getMessage(), e.getMessage().contains("${context:7}"));
+		}
+		assertEquals(0, stub.getNumRequests());
+	}
+
+	@Test
+	public void testParseId() throws Exception {
+		String response = StubRepositoryServer.addId("<?xml version=\"1.0\"?>\n<!-- c --><item a=\"b\"><c objid=\"x\"/></item>",
+				"escidoc:12", "/ir/item/escidoc:12");
+		assertEquals("<?xml version=\"1.0\"?>\n<!-- c --><item objid=\"escidoc:12\" xlink:href=\"/ir/item/escidoc:12\" "
+				+ "xmlns:xlink=\"http://www.w3.org/1999/xlink\" a=\"b\"><c objid=\"x\"/></item>", response);
+		assertEquals("escidoc:12", Ingester.parseId(response));
+		assertEquals("escidoc:3", Ingester.parseId("<ou xlink:href=\"/oum/organizational-unit/escidoc:3\"/>"));
+	}
+}
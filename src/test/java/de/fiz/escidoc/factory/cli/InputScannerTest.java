@@ -0,0 +1,74 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InputScannerTest {
+	private File root;
+
+	@Before
+	public void setup() throws Exception {
+		root = File.createTempFile("input-scanner-test-", "");
+		root.delete();
+		for (int i = 0; i < 20; i++) {
+			File dir = new File(root, "dir-" + (i % 4) + "/sub-" + i);
+			dir.mkdirs();
+			FileUtils.writeStringToFile(new File(dir, "file-" + i + ".pdf"), "pdf");
+			FileUtils.writeStringToFile(new File(dir, "file-" + i + ".xml"), "xml");
+		}
+		FileUtils.writeStringToFile(new File(root, "top.txt"), "txt");
+	}
+
+	@After
+	public void teardown() throws Exception {
+		FileUtils.deleteDirectory(root);
+	}
+
+	@Test
+	public void testListAll() throws Exception {
+		assertEquals(41, InputScanner.list(root, new String[] { "*" }, 4).size());
+	}
+
+	@Test
+	public void testListTypes() throws Exception {
+		List<File> files = InputScanner.list(root, new String[] { "pdf", "txt" }, 4);
+		assertEquals(21, files.size());
+		Collections.sort(files);
+		assertEquals(new File(root, "top.txt"), files.get(files.size() - 1));
+	}
+
+	@Test
+	public void testStreamingConsumers() throws Exception {
+		InputScanner scanner = new InputScanner(root, new String[] { "xml" }, 2, 3);
+		try {
+			scanner.start();
+			int count = 0;
+			File file;
+			while ((file = scanner.take()) != null) {
+				assertEquals(true, file.getName().endsWith(".xml"));
+				count++;
+			}
+			assertEquals(20, count);
+			// the end is reported to every consumer
+			assertEquals(null, scanner.take());
+		} finally {
+			scanner.close();
+		}
+	}
+
+	@Test
+	public void testMatcher() throws Exception {
+		assertEquals(null, InputScanner.createMatcher(new String[] { "pdf", "*" }));
+		assertEquals(true, InputScanner.createMatcher(new String[] { "pdf" }).matches(new File("a.pdf").toPath()));
+		assertEquals(false, InputScanner.createMatcher(new String[] { "pdf" }).matches(new File("a.pdfx").toPath()));
+		assertEquals(true, InputScanner.createMatcher(new String[] { "pdf", "xml" }).matches(new File("b.xml").toPath()));
+	}
+}
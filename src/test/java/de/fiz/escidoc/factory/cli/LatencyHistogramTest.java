@@ -0,0 +1,48 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void testBuckets() throws Exception {
+		long[] values = new long[] { 0, 1, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE };
+		for (long value : values) {
+			int bucket = LatencyHistogram.bucketOf(value);
+			assertTrue(value <= LatencyHistogram.highestValueOf(bucket));
+			if (bucket > 0) {
+				assertTrue(value > LatencyHistogram.highestValueOf(bucket - 1));
+			}
+		}
+	}
+
+	@Test
+	public void testPercentiles() throws Exception {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 1; i <= 10000; i++) {
+			histogram.record(i * 1000L);
+		}
+		assertEquals(10000, histogram.getCount());
+		assertEquals(10000000L, histogram.getMax());
+		assertEquals(5000500d, histogram.getMean(), 0.001d);
+		assertEquals(5000000d, histogram.getValueAtPercentile(50), 5000000d * 0.04d);
+		assertEquals(9900000d, histogram.getValueAtPercentile(99), 9900000d * 0.04d);
+		assertEquals(10000000L, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	public void testAdd() throws Exception {
+		LatencyHistogram a = new LatencyHistogram();
+		LatencyHistogram b = new LatencyHistogram();
+		a.record(10);
+		b.record(20);
+		b.record(-5);
+		a.add(b);
+		assertEquals(3, a.getCount());
+		assertEquals(20, a.getMax());
+		assertEquals(0, a.getValueAtPercentile(0));
+	}
+}
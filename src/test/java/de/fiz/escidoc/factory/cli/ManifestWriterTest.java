@@ -0,0 +1,67 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+public class ManifestWriterTest {
+
+	@Test
+	public void testEntriesAreWrittenInIndexOrder() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ManifestWriter manifest = new ManifestWriter(out, ManifestFormat.CSV, ManifestWriter.DEFAULT_PREFIX, 0, 0);
+		manifest.add(2, new ManifestEntry("item-2.xml"));
+		manifest.add(1, new ManifestEntry("item-1.xml"));
+		assertEquals(0, manifest.getNextIndex());
+		assertEquals(0, manifest.getLength());
+		manifest.add(0, new ManifestEntry("item-0.xml"));
+		assertEquals(3, manifest.getNextIndex());
+		// the entries are buffered until they are flushed
+		assertEquals(0, out.size());
+		assertTrue(manifest.flush(0));
+		assertEquals("testdaten/daten/item-0.xml,item-0.xml,text/xml\n"
+				+ "testdaten/daten/item-1.xml,item-1.xml,text/xml\n"
+				+ "testdaten/daten/item-2.xml,item-2.xml,text/xml\n", new String(out.toByteArray(), "UTF-8"));
+		assertEquals(out.size(), manifest.getLength());
+	}
+
+	@Test
+	public void testJsonLines() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ManifestWriter manifest = new ManifestWriter(out, ManifestFormat.JSON_LINES, "daten/\u00e4\"/", 0, 0);
+		manifest.add(0, new ManifestEntry("item-0.xml"));
+		manifest.close();
+		assertEquals("{\"path\":\"daten/\u00e4\\\"/item-0.xml\",\"name\":\"item-0.xml\",\"mimeType\":\"text/xml\"}\n",
+				new String(out.toByteArray(), "UTF-8"));
+		assertEquals(out.size(), manifest.getLength());
+	}
+
+	@Test
+	public void testParsePath() throws Exception {
+		for (ManifestFormat format : ManifestFormat.values()) {
+			StringBuilder line = new StringBuilder();
+			format.appendEntry(line, "daten/\u00e4\"\\/", new ManifestEntry("item-1.xml.gz", "item-1.xml.gz", -1, 10, 5));
+			assertEquals(format, ManifestFormat.ofLine(line.toString()));
+			String path = format.parsePath(line.toString());
+			if (format == ManifestFormat.CSV) {
+				assertEquals("daten/\u00e4\"\\/item-1.xml.gz", path);
+			} else {
+				assertEquals("daten/\u00e4\"\\/item-1.xml.gz", path);
+			}
+		}
+	}
+
+	@Test
+	public void testCompressedEntries() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ManifestWriter manifest = new ManifestWriter(out, ManifestFormat.CSV, "", 0, 0);
+		manifest.add(0, new ManifestEntry("item-0.xml.gz", "item-0.xml.gz", -1, 1000, 300));
+		manifest.add(1, new ManifestEntry("item-1.xml", "testdaten-i.xml.gz", 300, 1001, 301));
+		manifest.close();
+		assertEquals("item-0.xml.gz,item-0.xml.gz,text/xml,1000,300\n"
+				+ "testdaten-i.xml.gz,item-1.xml,text/xml,1001,301,300\n", new String(out.toByteArray(), "UTF-8"));
+	}
+}
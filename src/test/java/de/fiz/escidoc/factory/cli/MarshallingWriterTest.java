@@ -0,0 +1,40 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+
+import org.junit.Test;
+
+import de.escidoc.core.resources.om.item.Item;
+
+public class MarshallingWriterTest {
+
+	private MarshallingWriter<Item> writer = new MarshallingWriter<Item>(Item.class);
+
+	@Test
+	public void testWriteLargeDocument() throws Exception {
+		// multibyte characters spanning several buffer boundaries
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><test>");
+		while (xml.length() < 300 * 1024) {
+			xml.append("<title>Gr\u00fc\u00dfe \u20ac \u4e2d\u6587</title>");
+		}
+		xml.append("</test>");
+		ByteArrayOutputStream sink = new ByteArrayOutputStream();
+		long len = writer.write(xml, Channels.newChannel(sink));
+		byte[] expected = xml.toString().getBytes("UTF-8");
+		assertEquals(expected.length, len);
+		assertArrayEquals(expected, sink.toByteArray());
+	}
+
+	@Test
+	public void testWriterIsReusable() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			ByteArrayOutputStream sink = new ByteArrayOutputStream();
+			writer.write("<item id=\"" + i + "\"/>", Channels.newChannel(sink));
+			assertEquals("<item id=\"" + i + "\"/>", new String(sink.toByteArray(), "UTF-8"));
+		}
+	}
+}
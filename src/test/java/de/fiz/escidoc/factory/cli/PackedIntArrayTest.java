@@ -0,0 +1,49 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import de.fiz.escidoc.factory.FastRandom;
+
+public class PackedIntArrayTest {
+
+	@Test
+	public void testValuesSpanningBlocks() throws Exception {
+		// 7 bits per value, so values cross the boundaries of the longs
+		PackedIntArray array = new PackedIntArray(1000, 100);
+		assertEquals(7, array.getBitsPerValue());
+		assertEquals(110 * 8, array.getSizeInBytes());
+		FastRandom random = new FastRandom(42);
+		int[] expected = new int[array.size()];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = random.nextInt(100);
+			array.set(i, expected[i]);
+		}
+		// overwriting a value leaves its neighbours alone
+		array.set(9, 99);
+		expected[9] = 99;
+		array.set(9, 0);
+		expected[9] = 0;
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], array.get(i));
+		}
+	}
+
+	@Test
+	public void testBounds() throws Exception {
+		assertEquals(1, new PackedIntArray(10, 1).getBitsPerValue());
+		assertEquals(1, new PackedIntArray(10, 2).getBitsPerValue());
+		assertEquals(31, new PackedIntArray(10, Integer.MAX_VALUE).getBitsPerValue());
+		PackedIntArray array = new PackedIntArray(3, Integer.MAX_VALUE);
+		array.set(1, Integer.MAX_VALUE - 1);
+		assertEquals(0, array.get(0));
+		assertEquals(Integer.MAX_VALUE - 1, array.get(1));
+		assertEquals(0, array.get(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testValueOutOfBounds() throws Exception {
+		new PackedIntArray(10, 4).set(0, 4);
+	}
+}
@@ -0,0 +1,76 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class PipelineStageTest {
+
+	@Test
+	public void testCloseDrainsQueuedJobs() throws Exception {
+		final AtomicInteger sum = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+		PipelineStage<Integer> stage = new PipelineStage<Integer>(3, 4) {
+			@Override
+			Handler<Integer> createHandler() {
+				return new Handler<Integer>() {
+					public void handle(final Integer job) throws Exception {
+						Thread.sleep(1);
+						sum.addAndGet(job);
+					}
+
+					public void close() {
+						closed.incrementAndGet();
+					}
+				};
+			}
+		};
+		stage.start();
+		for (int i = 1; i <= 100; i++) {
+			stage.put(i);
+		}
+		stage.close();
+		assertTrue(stage.awaitTermination(10, TimeUnit.SECONDS));
+		// every job queued before the end marker has been handled and every handler has been closed once
+		assertEquals(5050, sum.get());
+		assertEquals(3, closed.get());
+		for (int i = 0; i < stage.getThreads().size(); i++) {
+			AbstractGenerator.getResult(stage.getThreads().get(i));
+		}
+	}
+
+	@Test
+	public void testFailureOfHandlerReachesProducer() throws Exception {
+		PipelineStage<Integer> stage = new PipelineStage<Integer>(1, 1) {
+			@Override
+			Handler<Integer> createHandler() {
+				return new Handler<Integer>() {
+					public void handle(final Integer job) throws Exception {
+						throw new IllegalStateException("job " + job + " failed");
+					}
+
+					public void close() {
+						fail("the handler of a failed thread was closed");
+					}
+				};
+			}
+		};
+		stage.start();
+		try {
+			// the queue takes a job after the failure, the next job waits for a free place and finds the failure
+			for (int i = 0; i < 10; i++) {
+				stage.put(i);
+			}
+			fail("the failure of the handler was not reported");
+		} catch (IllegalStateException e) {
+			assertEquals("job 0 failed", e.getMessage());
+		} finally {
+			stage.abort();
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReplayDriverTest {
+	private File directory;
+	private StubRepositoryServer stub;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("replay").toFile();
+		stub = new StubRepositoryServer(0, 4, 0);
+		stub.start();
+		final StringBuilder contexts = new StringBuilder();
+		final StringBuilder items = new StringBuilder();
+		for (int i = 0; i < 3; i++) {
+			Files.write(new File(directory, "context-" + i + ".xml").toPath(), "<context/>"
+					.getBytes(StandardCharsets.UTF_8));
+			ManifestFormat.CSV.appendEntry(contexts, ManifestWriter.DEFAULT_PREFIX, new ManifestEntry("context-" + i
+					+ ".xml", "context-" + i + ".xml", -1, -1, -1));
+			Files.write(new File(directory, "item-" + i + ".xml").toPath(), "<item/>".getBytes(StandardCharsets.UTF_8));
+			ManifestFormat.JSON_LINES.appendEntry(items, ManifestWriter.DEFAULT_PREFIX, new ManifestEntry("item-" + i
+					+ ".xml", "item-" + i + ".xml", -1, -1, -1));
+		}
+		Files.write(new File(directory, "testdaten-ctx.csv").toPath(), contexts.toString().getBytes(
+				StandardCharsets.UTF_8));
+		Files.write(new File(directory, "testdaten-i.csv").toPath(), items.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		stub.stop();
+		FileUtils.deleteDirectory(directory);
+	}
+
+	@Test
+	public void testReadManifest() throws Exception {
+		List<File> files = ReplayDriver.readManifest(new File(directory, "testdaten-i.csv"),
+				ManifestWriter.DEFAULT_PREFIX, directory);
+		assertEquals(3, files.size());
+		assertEquals(new File(directory, "item-2.xml"), files.get(2));
+	}
+
+	@Test
+	public void testClosedLoopSendsEveryFileOnce() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty(CommandlineInterface.PROPERTY_TARGET_DIRECTORY, directory.getAbsolutePath());
+		properties.setProperty(CommandlineInterface.PROPERTY_REPLAY_CONCURRENCY, "2");
+		ReplayDriver driver = ReplayDriver.fromProperties(properties, stub.getUrl());
+		driver.run();
+		assertEquals(6, driver.getNumRequests());
+		assertEquals(0, driver.getNumErrors());
+		assertEquals(6, stub.getNumRequests());
+		assertEquals(0, stub.getNumRejected());
+		assertEquals(6, driver.getServiceTimes().getCount());
+		assertTrue(driver.getReport().contains("closed loop"));
+	}
+
+	@Test
+	public void testTestplanFilesOfShardsAreRanked() throws Exception {
+		assertEquals(1, ReplayDriver.getRank(new File("testdaten-ctx.csv")));
+		assertEquals(3, ReplayDriver.getRank(new File("testdaten-i-00000-of-00004.csv")));
+		assertEquals(4, ReplayDriver.getRank(new File("testdaten-cr-00003-of-00004.jsonl")));
+		assertEquals(5, ReplayDriver.getRank(new File("testdaten-other.csv")));
+	}
+
+	@Test
+	public void testPlaceholdersAreDetected() throws Exception {
+		Files.write(new File(directory, "item-0.xml").toPath(), "<item><context href=\"${context:3}\"/></item>"
+				.getBytes(StandardCharsets.UTF_8));
+		assertEquals("${context:3}", ReplayDriver.findPlaceholder(new File(directory, "item-0.xml")));
+		assertNull(ReplayDriver.findPlaceholder(new File(directory, "item-1.xml")));
+		Properties properties = new Properties();
+		properties.setProperty(CommandlineInterface.PROPERTY_TARGET_DIRECTORY, directory.getAbsolutePath());
+		try {
+			ReplayDriver.fromProperties(properties, stub.getUrl());
+			fail("the placeholders of the items were not detected");
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("testdaten-i.csv"));
+		}
+	}
+
+	@Test
+	public void testFixedRateSchedulesRequests() throws Exception {
+		List<File> files = ReplayDriver.readManifest(new File(directory, "testdaten-ctx.csv"),
+				ManifestWriter.DEFAULT_PREFIX, directory);
+		ReplayDriver driver = new ReplayDriver(stub.getUrl(), null, files, 2, 100, 0.2);
+		long start = System.nanoTime();
+		driver.run();
+		// the last of the 20 requests is scheduled after 190 ms
+		assertTrue(System.nanoTime() - start >= 190000000L);
+		assertEquals(20, driver.getNumRequests());
+		assertEquals(20, driver.getResponseTimes().getCount());
+		assertTrue(driver.getReport().contains("fixed rate of 100 requests/s"));
+	}
+
+	@Test
+	public void testErrorsAreCounted() throws Exception {
+		Files.write(new File(directory, "context-1.xml").toPath(), "<context>${ou:1}</context>"
+				.getBytes(StandardCharsets.UTF_8));
+		List<File> files = ReplayDriver.readManifest(new File(directory, "testdaten-ctx.csv"),
+				ManifestWriter.DEFAULT_PREFIX, directory);
+		ReplayDriver driver = new ReplayDriver(stub.getUrl(), null, files, 1, 0, 0);
+		driver.run();
+		assertEquals(3, driver.getNumRequests());
+		assertEquals(1, driver.getNumErrors());
+		assertTrue(driver.getReport().contains("context-1.xml was answered with 409"));
+	}
+}
@@ -0,0 +1,36 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.Test;
+
+public class ShardTest {
+
+	@Test
+	public void testRanges() throws Exception {
+		int numObjects = 103;
+		int expectedFirst = 0;
+		for (int i = 0; i < 4; i++) {
+			Shard shard = Shard.parse(i + "/4");
+			assertEquals(expectedFirst, shard.getFirst(numObjects));
+			expectedFirst = shard.getEnd(numObjects);
+		}
+		assertEquals(numObjects, expectedFirst);
+		assertEquals(0, Shard.ALL.getFirst(numObjects));
+		assertEquals(numObjects, Shard.ALL.getEnd(numObjects));
+	}
+
+	@Test
+	public void testResultFile() throws Exception {
+		File result = new File("target", "testdaten-i.csv");
+		assertEquals(result, Shard.ALL.getResultFile(result));
+		assertEquals(new File("target", "testdaten-i-00002-of-00016.csv"), Shard.parse("2/16").getResultFile(result));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidShard() throws Exception {
+		Shard.parse("4/4");
+	}
+}
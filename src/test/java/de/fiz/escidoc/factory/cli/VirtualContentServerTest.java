@@ -0,0 +1,100 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.fiz.escidoc.factory.RandomContentWriter;
+
+public class VirtualContentServerTest {
+	private static final long SEED = 4711;
+	private static final int SIZE = 1024 * 1024 + 13;
+
+	private VirtualContentServer server;
+	private byte[] expected;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new VirtualContentServer(0, 2);
+		server.start();
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		new RandomContentWriter().write(Channels.newChannel(content), SIZE, SEED);
+		expected = content.toByteArray();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.stop();
+	}
+
+	private HttpURLConnection open(final String path, final String range) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) new URL(server.getUrl() + path).openConnection();
+		if (range != null) {
+			connection.setRequestProperty("Range", range);
+		}
+		return connection;
+	}
+
+	private static byte[] read(final HttpURLConnection connection) throws Exception {
+		InputStream in = connection.getInputStream();
+		try {
+			return IOUtils.toByteArray(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void testContentEqualsWrittenFile() throws Exception {
+		HttpURLConnection connection = open(VirtualContentServer.getPath(SEED, SIZE), null);
+		assertEquals(200, connection.getResponseCode());
+		assertArrayEquals(expected, read(connection));
+		assertEquals(SIZE, server.getBytesSent());
+	}
+
+	@Test
+	public void testRanges() throws Exception {
+		String path = VirtualContentServer.getPath(SEED, SIZE);
+		HttpURLConnection connection = open(path, "bytes=13-300012");
+		assertEquals(206, connection.getResponseCode());
+		assertEquals("bytes 13-300012/" + SIZE, connection.getHeaderField("Content-Range"));
+		assertArrayEquals(Arrays.copyOfRange(expected, 13, 300013), read(connection));
+		connection = open(path, "bytes=-5");
+		assertEquals(206, connection.getResponseCode());
+		assertArrayEquals(Arrays.copyOfRange(expected, SIZE - 5, SIZE), read(connection));
+		connection = open(path, "bytes=1048570-");
+		assertArrayEquals(Arrays.copyOfRange(expected, 1048570, SIZE), read(connection));
+		assertEquals(416, open(path, "bytes=" + SIZE + "-").getResponseCode());
+	}
+
+	@Test
+	public void testParseRange() throws Exception {
+		assertNull(VirtualContentServer.parseRange(null, 100));
+		assertNull(VirtualContentServer.parseRange("bytes=0-1,5-6", 100));
+		assertArrayEquals(new long[] { 90, 99 }, VirtualContentServer.parseRange("bytes=90-200", 100));
+		assertArrayEquals(new long[] { 0, 99 }, VirtualContentServer.parseRange("bytes=-200", 100));
+		assertNull(VirtualContentServer.parseRange("bytes=5-4", 100));
+		assertEquals(0, VirtualContentServer.parseRange("bytes=100-200", 100).length);
+	}
+
+	@Test
+	public void testLargeContentHead() throws Exception {
+		HttpURLConnection connection = open(VirtualContentServer.CONTENT_PATH + SEED + "/1T", null);
+		connection.setRequestMethod("HEAD");
+		assertEquals(200, connection.getResponseCode());
+		assertEquals(String.valueOf(1L << 40), connection.getHeaderField("Content-Length"));
+		assertEquals(404, open(VirtualContentServer.CONTENT_PATH + "x/1", null).getResponseCode());
+	}
+}
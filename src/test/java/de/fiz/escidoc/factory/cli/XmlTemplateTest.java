@@ -0,0 +1,51 @@
+package de.fiz.escidoc.factory.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class XmlTemplateTest {
+
+	private static String toString(final ByteBuffer buffer) {
+		final byte[] data = new byte[buffer.remaining()];
+		buffer.duplicate().get(data);
+		return new String(data, StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testRender() throws Exception {
+		XmlTemplate template = XmlTemplate.compile("<item id=\"$1\"><c href=\"$0\"/><c href=\"$0\"/></item>",
+				new String[] { "$0", "$1" });
+		assertEquals(3, template.getNumOccurrences());
+		ByteBuffer buffer = template.render(new String[] { "/tmp/a.pdf", "item-1" }, null);
+		assertEquals("<item id=\"item-1\"><c href=\"/tmp/a.pdf\"/><c href=\"/tmp/a.pdf\"/></item>", toString(buffer));
+		// the buffer is reused if it is large enough
+		assertSame(buffer, template.render(new String[] { "b", "i" }, buffer));
+		assertEquals("<item id=\"i\"><c href=\"b\"/><c href=\"b\"/></item>", toString(buffer));
+	}
+
+	@Test
+	public void testRenderNonAscii() throws Exception {
+		XmlTemplate template = XmlTemplate.compile("<t>\u00e4$0</t>", new String[] { "$0" });
+		ByteBuffer small = ByteBuffer.allocateDirect(4);
+		ByteBuffer buffer = template.render(new String[] { "a\u00f6\u20ac" }, small);
+		assertNotSame(small, buffer);
+		assertEquals("<t>\u00e4a\u00f6\u20ac</t>", toString(buffer));
+	}
+
+	@Test
+	public void testIsVerbatim() throws Exception {
+		assertTrue(XmlTemplate.isVerbatim("/data/input/file-1.pdf"));
+		assertFalse(XmlTemplate.isVerbatim("a&b"));
+		assertFalse(XmlTemplate.isVerbatim("<"));
+		assertFalse(XmlTemplate.isVerbatim("it's"));
+		assertFalse(XmlTemplate.isVerbatim("a\nb"));
+	}
+}